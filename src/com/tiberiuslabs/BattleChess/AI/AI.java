@@ -3,21 +3,19 @@ package com.tiberiuslabs.BattleChess.AI;
 import com.tiberiuslabs.BattleChess.AI.Score.ScoreFunc;
 import com.tiberiuslabs.BattleChess.ChessEngine.Board;
 import com.tiberiuslabs.BattleChess.ChessEngine.Move;
-import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.ChessEngine.ReadOnlyBoard;
 import com.tiberiuslabs.BattleChess.Types.Color;
-import com.tiberiuslabs.BattleChess.Types.MoveType;
-import com.tiberiuslabs.BattleChess.Types.Position;
-import com.tiberiuslabs.BattleChess.Types.Unit;
-import com.tiberiuslabs.Collections.Pair;
+import com.tiberiuslabs.BattleChess.Types.SearchStrategy;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import static java.lang.Math.max;
-import static java.lang.Math.min;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Interface between the AI engine and the game state
@@ -25,11 +23,31 @@ import static java.lang.Math.min;
  * @author Amandeep Gill
  */
 public class AI {
+    /**
+     * the transposition table of each AI holds 2^TABLE_BITS entries
+     */
+    public static final int TABLE_BITS = 18;
+    /**
+     * the search depth used up by each move, each iteration of the iterative deepening search looks one move further
+     * ahead than the last
+     */
+    public static final int DEPTH_STEP = 4;
+
     private final int numFuncs;
     private final ScoreFunc[] scoreFuncs;
     private final boolean[] useFunc;
     private final int[] weights;
     private Color color;
+    private TranspositionTable table;
+    private Searcher[] searchers = new Searcher[0];
+    private ForkJoinPool pool;
+    private long timeBudget = Long.MAX_VALUE;
+    private int maxDepth = 16;
+    private SearchStrategy strategy = SearchStrategy.ALPHA_BETA;
+    private MonteCarloSearch monteCarlo;
+    private volatile Set<Pruning> pruning = Collections.unmodifiableSet(EnumSet.allOf(Pruning.class));
+    private volatile SearchInfo lastSearchInfo;
+    private volatile boolean recordStatistics = true;
 
     /**
      * create a random set of metrics for this AI instance
@@ -98,28 +116,245 @@ public class AI {
     }
 
     /**
-     * Determine the best move for the AI to make
+     * Determine the best move for the AI to make. <p/>
+     * Searches the position with iterative deepening, each iteration searching DEPTH_STEP deeper than the last and
+     * starting with the best move of the previous iteration, until maxDepth is reached or the time budget runs out.
+     * When the time runs out the unfinished iteration is thrown away and the best move of the deepest completed
+     * iteration is returned. The first iteration is always completed. <p/>
+     * If the AI has a pool, one helper searcher per pool thread searches the same position alongside the calling
+     * thread, every other helper starting one iteration deeper. The helpers share the transposition table with the
+     * main search, so their results speed up the main search and they stop when the main search stops. <p/>
+     * If the AI's strategy is SearchStrategy.MONTE_CARLO the position is searched with Monte-Carlo tree search instead,
+     * by the same threads and under the same limits, maxDepth limiting the depth of its line of most played moves.
      *
      * @param board a copy of the current game state
      * @return a Unit/from/to Triple reflecting the AI's move
+     * @see #setSearchLimits(long, int)
+     * @see #setStrategy(com.tiberiuslabs.BattleChess.Types.SearchStrategy)
+     * @see #setPool(java.util.concurrent.ForkJoinPool)
+     */
+    public Move getMove(ReadOnlyBoard board) throws NoMoveException {
+        Searcher.Control control = new Searcher.Control(timeBudget, false);
+        Move move = search(new PackedBoard(board, this.color), control);
+        recordSearch(control.getInfo());
+        return move;
+    }
+
+    /**
+     * Search a position for the AI's move, as getMove does, under the given control. The statistics of the search
+     * are kept by the control and are not recorded, the caller records them with recordSearch if it uses the move
+     *
+     * @param packedBoard the position to search, the AI must be the side to move
+     * @param control     the control that stops the search, which may be stopped from another thread
+     * @return the best move found before the control was stopped
+     * @throws NoMoveException if the AI has no moves in the position
      */
-    public Move getMove(Board board) throws NoMoveException {
-        AIBoard aiBoard = new AIBoard(board);
-        int alpha = Integer.MIN_VALUE;
-        int beta = Integer.MAX_VALUE;
-        Set<Move> moves = generateMoves(aiBoard, this.color);
-        if (moves.size() < 1) {
+    Move search(PackedBoard packedBoard, Searcher.Control control) throws NoMoveException {
+        long start = System.nanoTime();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int numMoves = MoveGenerator.generateMoves(packedBoard, packedBoard.sideToMove(), moves, 0);
+        if (numMoves < 1) {
             throw new NoMoveException();
         }
-        Move maxMove = moves.parallelStream()
-                .filter(move -> move != null)
-                .map(mapper -> new Pair<>(mapper, alphabeta(new AIBoard(board), 16, alpha, beta, true)))
-                .collect(Collectors.maxBy((p1, p2) -> p1.snd.compareTo(p2.snd)))
-                .get()
-                .fst;
-
-        assert maxMove != null;
-        return maxMove;
+        moves = Arrays.copyOf(moves, numMoves);
+
+        int maxMove;
+        if (strategy == SearchStrategy.MONTE_CARLO) {
+            if (monteCarlo == null) {
+                monteCarlo = new MonteCarloSearch(this);
+            }
+            maxMove = monteCarlo.search(packedBoard, control, pool, maxDepth);
+            SearchCounters total = monteCarlo.counters();
+            control.setInfo(new SearchInfo(total, total.iterations, System.nanoTime() - start));
+        } else {
+            maxMove = alphaBeta(packedBoard, moves, control);
+            SearchCounters total = new SearchCounters();
+            for (Searcher searcher : searchers) {
+                total.add(searcher.counters());
+            }
+            control.setInfo(new SearchInfo(total, searchers[0].counters().iterations, System.nanoTime() - start));
+        }
+
+        if (maxMove == PackedBoard.NO_MOVE) {
+            // stopped before the first iteration was completed, which only happens to a search that is pondering
+            maxMove = moves[0];
+        }
+        return packedBoard.decode(maxMove);
+    }
+
+    // the iterative deepening alpha/beta search on the calling thread and one helper for each thread of the pool
+    private int alphaBeta(PackedBoard packedBoard, int[] moves, Searcher.Control control) {
+        if (table == null) {
+            table = new TranspositionTable(TABLE_BITS);
+        }
+        int helpers = pool == null ? 0 : pool.getParallelism();
+        if (searchers.length != helpers + 1) {
+            searchers = new Searcher[helpers + 1];
+            for (int i = 0; i <= helpers; i += 1) {
+                searchers[i] = new Searcher(this, table);
+            }
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(helpers);
+        for (int i = 1; i <= helpers; i += 1) {
+            Searcher helper = searchers[i];
+            PackedBoard helperBoard = new PackedBoard(packedBoard);
+            int[] helperMoves = moves.clone();
+            int firstDepth = DEPTH_STEP * (1 + i % 2);
+            tasks.add(pool.submit(() -> helper.search(helperBoard, helperMoves, control, firstDepth, maxDepth)));
+        }
+
+        searchers[0].search(packedBoard, moves, control, DEPTH_STEP, maxDepth);
+        control.stop();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return control.bestMove();
+    }
+
+    /**
+     * Guess the move the opponent will make, the best move for them that the last search found
+     *
+     * @param board the current game state, with the opponent to move
+     * @return the encoded move, or PackedBoard.NO_MOVE if the position was not searched
+     */
+    int expectedReply(PackedBoard board) {
+        if (strategy == SearchStrategy.MONTE_CARLO) {
+            return monteCarlo == null ? PackedBoard.NO_MOVE : monteCarlo.expectedReply(board);
+        }
+        int move = table == null ? PackedBoard.NO_MOVE : TranspositionTable.move(table.probe(board.hash()));
+        if (move == PackedBoard.NO_MOVE) {
+            return move;
+        }
+        // the entry may belong to another position with the same index bits, check that the move can be made
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+        for (int i = 0; i < end; i++) {
+            if (moves[i] == move) {
+                return move;
+            }
+        }
+        return PackedBoard.NO_MOVE;
+    }
+
+    /**
+     * Record the statistics of a search whose move is used, as the last search of the AI and in SearchStatistics
+     *
+     * @param info the statistics of the search
+     */
+    void recordSearch(SearchInfo info) {
+        lastSearchInfo = info;
+        if (recordStatistics) {
+            SearchStatistics.getInstance().record(info);
+        }
+    }
+
+    /**
+     * Choose whether the AI's searches are added to SearchStatistics, they are by default. The statistics of the last
+     * search are kept by the AI either way
+     *
+     * @param recordStatistics false to leave the shared statistics alone, for searches that are not part of a game
+     * @see #getLastSearchInfo()
+     */
+    public void setRecordStatistics(boolean recordStatistics) {
+        this.recordStatistics = recordStatistics;
+    }
+
+    /**
+     * Forget what earlier searches have learned: the transposition table, the move ordering history and the
+     * Monte-Carlo tree are cleared, so that the next search starts as the first search of a new AI would, without
+     * allocating them again
+     */
+    public void clearSearch() {
+        if (table != null) {
+            table.clear();
+        }
+        for (Searcher searcher : searchers) {
+            searcher.clear();
+        }
+        if (monteCarlo != null) {
+            monteCarlo.clear();
+        }
+    }
+
+    /**
+     * Get the statistics of the AI's last search whose move was used, a pondering search that was never hit is left
+     * out
+     *
+     * @return the statistics, or null if the AI has not searched yet
+     * @see com.tiberiuslabs.BattleChess.AI.SearchStatistics
+     */
+    public SearchInfo getLastSearchInfo() {
+        return lastSearchInfo;
+    }
+
+    /**
+     * Get how long the AI may search for each move
+     *
+     * @return the wall-clock time in milliseconds for each call to getMove, Long.MAX_VALUE for no limit
+     */
+    long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Set how long and how deep the AI may search for each move
+     *
+     * @param timeBudget the wall-clock time in milliseconds for each call to getMove, Long.MAX_VALUE for no limit
+     * @param maxDepth   the deepest iteration to search, in depth units (each move uses DEPTH_STEP)
+     */
+    public void setSearchLimits(long timeBudget, int maxDepth) {
+        this.timeBudget = timeBudget;
+        this.maxDepth = Math.max(maxDepth, DEPTH_STEP);
+    }
+
+    /**
+     * Get the search algorithm the AI chooses its moves with
+     *
+     * @return the strategy, SearchStrategy.ALPHA_BETA by default
+     */
+    public SearchStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Choose the search algorithm the AI chooses its moves with, from the next search on
+     *
+     * @param strategy the strategy to search with
+     */
+    public void setStrategy(SearchStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Get the selective search techniques that the AI uses
+     *
+     * @return an unmodifiable copy of the techniques that are turned on
+     */
+    public Set<Pruning> getPruning() {
+        return pruning;
+    }
+
+    /**
+     * Choose the selective search techniques that the AI uses, from the next search on. Turning them off makes the
+     * search slower but exact to its depth
+     *
+     * @param pruning the techniques to turn on, every other technique is turned off
+     */
+    public void setPruning(Set<Pruning> pruning) {
+        this.pruning = pruning.isEmpty()
+                ? Collections.unmodifiableSet(EnumSet.noneOf(Pruning.class))
+                : Collections.unmodifiableSet(EnumSet.copyOf(pruning));
+    }
+
+    /**
+     * Set the pool that the helper threads of the search run on, the AI runs one helper for each thread of the pool
+     * in addition to the thread calling getMove
+     *
+     * @param pool the pool to run the helpers on, or null to search on the calling thread only
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
     /**
@@ -137,6 +372,13 @@ public class AI {
      * @param color the color of the AI player
      */
     public void setColor(Color color) {
+        if (table != null && this.color != color) {
+            // scores in the table are from the point of view of the old color
+            table.clear();
+        }
+        if (monteCarlo != null && this.color != color) {
+            monteCarlo.clear();
+        }
         this.color = color;
     }
 
@@ -154,143 +396,6 @@ public class AI {
         return score;
     }
 
-    /**
-     * Implementation of alpha/beta pruning min/max function for determining the optimal move. <p/>
-     *
-     * @param board     the copy of the current game state
-     * @param depth     the distance from the max depth to check
-     * @param alpha     the current alpha value
-     * @param beta      the current beta value
-     * @param maxPlayer the boolean to determine if this level is a max or min level
-     * @return the max or min value of the children, depending on maxPlayer
-     * @see <a href="https://en.wikipedia.org/wiki/Alpha%E2%80%93beta_pruning">Wikipedia article on alpha/beta pruning</a>
-     */
-    private int alphabeta(Board board, int depth, int alpha, int beta, boolean maxPlayer) {
-        Color winner = Rules.winner(board);
-        if (winner != Color.NEUTRAL) {
-            // check if we have reached a win state
-            // return the max possible value if the AI player has won, min otherwise
-            return winner == this.color ? Integer.MAX_VALUE : Integer.MIN_VALUE;
-        } else if (depth <= 0) {
-            // return the value of the current board state if we have hit the max depth
-            return getScore(board);
-        } else if (maxPlayer) {
-            // return the max value of the child nodes
-            for (Move move : generateMoves(board, this.color)) {
-                // change the board state to reflect the current recruitment or move
-                board.makeMove(move);
-                // change the depth modifier based on how active the board is
-                int delta;
-                switch (move.moveType) {
-                    case MOV:
-                        delta = 4;
-                        break;
-                    case ATK:
-                        delta = 1;
-                        break;
-                    case REC:
-                        delta = 2;
-                        break;
-                    default:
-                        delta = 1;
-                }
-
-                // get the max of all the child nodes from this board state
-                alpha = max(alpha, alphabeta(board, depth - delta, alpha, beta, false));
-
-                // undo the current recruitment or move in preparation for the next sibling or for
-                // returning to the parent board state
-                board.undoMove();
-
-                if (beta <= alpha) {
-                    // we have hit the beta cutoff point, stop checking and move on to the next sibling board state
-                    return alpha;
-                }
-            }
-
-            // no nodes were pruned, return the current alpha
-            return alpha;
-        } else {
-            // we are checking for the min player, so the moves generated need to be for that player
-            Color player = this.color == Color.BLACK ? Color.WHITE : Color.BLACK;
-            for (Move move : generateMoves(board, player)) {
-                // change the board state to reflect the current recruitment or move
-                board.makeMove(move);
-                // change the depth modifier based on how active the board is
-                int delta;
-                switch (move.moveType) {
-                    case MOV:
-                        delta = 4;
-                        break;
-                    case ATK:
-                        delta = 1;
-                        break;
-                    case REC:
-                        delta = 2;
-                        break;
-                    default:
-                        delta = 1;
-                }
-                // get the min of all the child nodes from this board state
-                beta = min(beta, alphabeta(board, depth - delta, alpha, beta, true));
-
-                // undo the current recruitment of move in preparation for the next sibling or for
-                // returning to the parent board state
-                board.undoMove();
-
-                if (beta <= alpha) {
-                    // we have hit the alpha cutoff point, stop checking and move tho the next sibling board state
-                    return beta;
-                }
-            }
-
-            // no nodes were pruned, return the current beta
-            return beta;
-        }
-    }
-
-    /**
-     * Generate all possible moves and recruitments for the given player
-     *
-     * @param board  the copy of the current game state
-     * @param player the player for whom we are generating the moves
-     * @return a set of all possible moves and recruitments for the player
-     */
-    private Set<Move> generateMoves(Board board, Color player) {
-        Set<Move> moves = new HashSet<>();
-
-        board.getActiveUnits(player)
-                .parallelStream()
-                .filter(attacker -> attacker != null)
-                .forEach(attacker -> {
-                    Position startPos = attacker.position;
-                    moves.addAll(Rules.getValidMoves(attacker, startPos, board)
-                            .parallelStream()
-                            .map(finalPos -> {
-                                Unit defender = board.get(finalPos);
-                                MoveType moveType;
-                                if (defender == null) {
-                                    moveType = MoveType.MOV;
-                                } else {
-                                    moveType = MoveType.ATK;
-                                }
-                                return new Move(attacker, startPos, defender, finalPos, moveType);
-                            })
-                            .collect(Collectors.toList()));
-                });
-
-        board.getGraveyard(player)
-                .parallelStream()
-                .filter(recruit -> recruit != null)
-                .forEach(recruit -> {
-                    moves.addAll(Rules.getValidRecruitments(player, recruit, board).parallelStream()
-                            .map(finalPos -> new Move(recruit, null, null, finalPos, MoveType.REC))
-                            .collect(Collectors.toList()));
-                });
-
-        return moves;
-    }
-
     @Override
     public String toString() {
         return "AI{" + this.hashCode() + ": weights=" + Arrays.toString(weights) +
@@ -1,15 +1,20 @@
 package com.tiberiuslabs.BattleChess.AI;
 
 import com.tiberiuslabs.BattleChess.AI.Score.ScoreFunc;
-import com.tiberiuslabs.BattleChess.ChessEngine.Board;
 import com.tiberiuslabs.BattleChess.ChessEngine.GameBoard;
 import com.tiberiuslabs.BattleChess.ChessEngine.Move;
+import com.tiberiuslabs.BattleChess.ChessEngine.ReadOnlyBoard;
 import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
 import com.tiberiuslabs.BattleChess.Types.AIDifficulty;
 import com.tiberiuslabs.BattleChess.Types.Color;
 import com.tiberiuslabs.Collections.Pair;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory.buildScoreFuncs;
 
@@ -19,17 +24,54 @@ import static com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory.buildScoreF
  * @author Amandeep Gill
  */
 public class AIEngine {
+    // shared by every engine, the book is read-only
+    private static final OpeningBook book = OpeningBook.loadDefault();
+
     private AI ai;
+    private final ForkJoinPool pool;
+    private final Random random = new Random();
+
+    // runs every search of this engine one after the other, so that a stopped search is always finished before the
+    // next one starts
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AI search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the search run while the opponent is thinking, and the hash of the position it expects to be played, completed
+    // on the search thread once the expected reply is known
+    private boolean ponderEnabled = true;
+    private CompletableFuture<Move> ponderResult;
+    private Searcher.Control ponderControl;
+    private CompletableFuture<Long> ponderHash;
+
+    private volatile SearchInfoCallback searchInfoCallback;
 
     /**
-     * Initialize the AI with the given difficulty setting and player color
+     * Initialize the AI with the given difficulty setting and player color, searching with one thread per processor
      *
      * @param level the difficulty setting for the AI
      * @param color the player color for the AI
      */
     public AIEngine(AIDifficulty level, Color color) {
+        this(level, color, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initialize the AI with the given difficulty setting, player color and number of search threads
+     *
+     * @param level   the difficulty setting for the AI
+     * @param color   the player color for the AI
+     * @param threads the number of threads to search with, the engine's own search thread is one of them
+     */
+    public AIEngine(AIDifficulty level, Color color, int threads) {
         // currently only generates a random AI
         this.ai = new AI(buildScoreFuncs(), color);
+        this.ai.setSearchLimits(level.timeBudget, level.maxDepth);
+        this.ai.setStrategy(level.strategy);
+        this.pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+        this.ai.setPool(pool);
     }
 
     public static void main(String[] args) {
@@ -85,13 +127,13 @@ public class AIEngine {
         for (int moves = 0; moves < 100; moves += 1) {
             Move wMove;
             try {
-                wMove = white.getMove(new GameBoard(board));
+                wMove = white.getMove(board.snapshot());
             } catch (AI.NoMoveException e) {
                 return false;
             }
             if (wMove != null) {
                 if (wMove.startPos == null) {
-                    board.set(wMove.attacker, wMove.finalPos);
+                    board.set(board.getDeadUnit(wMove.attacker.color, wMove.attacker.unitType), wMove.finalPos);
                 } else {
                     board.move(wMove.startPos, wMove.finalPos);
                 }
@@ -105,13 +147,13 @@ public class AIEngine {
 
             Move bMove;
             try {
-                bMove = black.getMove(new GameBoard(board));
+                bMove = black.getMove(board.snapshot());
             } catch (AI.NoMoveException e) {
                 return true;
             }
             if (bMove != null) {
                 if (bMove.startPos == null) {
-                    board.set(bMove.attacker, bMove.finalPos);
+                    board.set(board.getDeadUnit(bMove.attacker.color, bMove.attacker.unitType), bMove.finalPos);
                 } else {
                     board.move(bMove.startPos, bMove.finalPos);
                 }
@@ -138,14 +180,215 @@ public class AIEngine {
     }
 
     /**
-     * Gets the AI's makeMove.
+     * Turn pondering on or off, it is on by default
+     *
+     * @param ponderEnabled true to search while the opponent is thinking
+     * @see #startPondering(com.tiberiuslabs.BattleChess.ChessEngine.ReadOnlyBoard)
+     */
+    public void setPondering(boolean ponderEnabled) {
+        this.ponderEnabled = ponderEnabled;
+        if (!ponderEnabled) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * Start searching on the opponent's time. The AI guesses the opponent's move from its last search and searches
+     * its own reply to that move in the background. If the guess is right the next call to getAIMove continues that
+     * search with the full time budget, most of the time the search has already finished and the move is returned at
+     * once. Otherwise the search is stopped, and the positions it searched stay in the transposition table.
+     *
+     * @param board the current game state, with the opponent to move. Copied, so the board may change afterwards
+     */
+    public void startPondering(ReadOnlyBoard board) {
+        stopPondering();
+        if (!ponderEnabled) {
+            return;
+        }
+        Color opponent = ai.getColor() == Color.BLACK ? Color.WHITE : Color.BLACK;
+        PackedBoard expected = new PackedBoard(board, opponent);
+        Searcher.Control control = new Searcher.Control(ai.getTimeBudget(), true);
+        CompletableFuture<Long> hash = new CompletableFuture<>();
+        ponderControl = control;
+        ponderHash = hash;
+        // the expected reply is read from the AI's search tree, which the stopped search before this one may still be
+        // changing, so it is only read on the search thread once that search has finished
+        ponderResult = CompletableFuture.supplyAsync(() -> {
+            int reply = control.isStopped() ? PackedBoard.NO_MOVE : ai.expectedReply(expected);
+            if (reply == PackedBoard.NO_MOVE) {
+                // the hash is never completed, so no position is a ponder hit
+                return null;
+            }
+            expected.makeMove(reply);
+            hash.complete(expected.hash());
+            return search(expected, control);
+        }, searchThread);
+    }
+
+    // stop the pondering search, if there is one, it finishes before the next search starts
+    private void stopPondering() {
+        if (ponderResult != null) {
+            ponderControl.stop();
+            ponderResult = null;
+            ponderControl = null;
+            ponderHash = null;
+        }
+    }
+
+    /**
+     * Gets the AI's makeMove, waiting for the search to finish.
      *
      * @param board the current game state, must not be null. Makes a copy to ensure that the game state is not
      *              changed while the AI calculates the best makeMove to make
      * @return a Move instance representing what the AI sees as the best makeMove for it to make
+     * @see #getAIMoveAsync(com.tiberiuslabs.BattleChess.ChessEngine.ReadOnlyBoard, ProgressCallback)
+     */
+    public Move getAIMove(ReadOnlyBoard board) throws AI.NoMoveException {
+        try {
+            return getAIMoveAsync(board, null).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AI.NoMoveException) {
+                throw (AI.NoMoveException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the AI's makeMove without waiting for it. The move is taken from the opening book if the book has a reply
+     * to the position, or from the pondering search if it expected the position, otherwise the AI searches for it on
+     * the engine's search thread. <p/>
+     * Cancelling the returned future stops the search. The future completes exceptionally with an AI.NoMoveException
+     * if the AI has no moves.
+     *
+     * @param board    the current game state, must not be null. Copied before this method returns, so the board may
+     *                 change while the AI searches
+     * @param progress told about the best move so far each time the search completes a deeper iteration, on the
+     *                 search thread, or null. A pondering search that expected the position reports its deepest
+     *                 iteration so far at once, on the calling thread
+     * @return the AI's move, completed on the search thread
      * @see com.tiberiuslabs.BattleChess.ChessEngine.Move
+     * @see com.tiberiuslabs.BattleChess.AI.OpeningBook
+     */
+    public CompletableFuture<Move> getAIMoveAsync(ReadOnlyBoard board, ProgressCallback progress) {
+        PackedBoard packedBoard = new PackedBoard(board, ai.getColor());
+        if (book != null) {
+            int move = book.probe(packedBoard, random);
+            if (move != PackedBoard.NO_MOVE) {
+                stopPondering();
+                return CompletableFuture.completedFuture(packedBoard.decode(move));
+            }
+        }
+
+        Searcher.Control control;
+        CompletableFuture<Move> result;
+        // a pondering search that has not yet made its expected reply has no hash, and is not a hit
+        Long expectedHash = ponderHash == null ? null : ponderHash.getNow(null);
+        if (expectedHash != null && packedBoard.hash() == expectedHash) {
+            control = ponderControl;
+            result = ponderResult;
+            ponderResult = null;
+            ponderControl = null;
+            ponderHash = null;
+            control.ponderHit();
+        } else {
+            stopPondering();
+            control = new Searcher.Control(ai.getTimeBudget(), false);
+            // the search makes its moves on a copy, packedBoard is only read to decode the progress reports
+            PackedBoard searchBoard = new PackedBoard(packedBoard);
+            result = CompletableFuture.supplyAsync(() -> search(searchBoard, control), searchThread);
+        }
+
+        if (progress != null) {
+            // reports the best move of a pondering search at once, it may already have finished
+            control.setListener((depth, move, score) -> progress.progress(depth, packedBoard.decode(move), score));
+        }
+        // the move is only used once the search finishes, a pondering search may have finished before it was hit
+        CompletableFuture<Move> used = new CompletableFuture<>();
+        result.whenComplete((move, error) -> {
+            if (used.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                used.completeExceptionally(error);
+            } else {
+                searchUsed(control.getInfo());
+                used.complete(move);
+            }
+        });
+        used.whenComplete((move, error) -> {
+            if (used.isCancelled()) {
+                control.stop();
+            }
+        });
+        return used;
+    }
+
+    // search on the search thread, where a checked exception has to be wrapped to complete the future with
+    private Move search(PackedBoard board, Searcher.Control control) {
+        try {
+            return ai.search(board, control);
+        } catch (AI.NoMoveException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // record the statistics of a search whose move is about to be returned and tell the callback about them
+    private void searchUsed(SearchInfo info) {
+        ai.recordSearch(info);
+        SearchInfoCallback callback = searchInfoCallback;
+        if (callback != null) {
+            callback.searchDone(info);
+        }
+    }
+
+    /**
+     * Set the callback told about the statistics of each search whose move is used
+     *
+     * @param searchInfoCallback the callback, called on the search thread, or on the thread calling getAIMoveAsync if
+     *                           the pondering search it uses has already finished, or null for none
+     * @see com.tiberiuslabs.BattleChess.AI.SearchStatistics
+     */
+    public void setSearchInfoCallback(SearchInfoCallback searchInfoCallback) {
+        this.searchInfoCallback = searchInfoCallback;
+    }
+
+    /**
+     * Release the search threads of this engine, the engine must not be used afterwards
+     */
+    public void shutdown() {
+        stopPondering();
+        searchThread.shutdownNow();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Receives the best move found so far while the AI searches
+     */
+    @FunctionalInterface
+    public interface ProgressCallback {
+        /**
+         * Called each time the search completes an iteration deeper than any before
+         *
+         * @param depth    the depth of the iteration, in the depth units of the AI search
+         * @param bestMove the best move found by the iteration
+         * @param score    the score of the best move
+         */
+        public void progress(int depth, Move bestMove, int score);
+    }
+
+    /**
+     * Receives the statistics of each search
      */
-    public Move getAIMove(Board board) throws AI.NoMoveException {
-        return ai.getMove(board);
+    @FunctionalInterface
+    public interface SearchInfoCallback {
+        /**
+         * Called when a search has finished, before its move is returned
+         *
+         * @param info the statistics of the search
+         */
+        public void searchDone(SearchInfo info);
     }
 }
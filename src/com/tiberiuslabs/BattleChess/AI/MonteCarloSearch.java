@@ -0,0 +1,511 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte-Carlo tree search (UCT), the AI's alternative to the alpha/beta search. <p/>
+ * Each playout walks down the tree from the root, choosing at each node the child with the best upper confidence
+ * bound, until it reaches a leaf. A leaf that has been reached often enough is expanded, then a few random moves are
+ * played from it (attacks are preferred) and the board is scored with the AI's score functions, squashed into a
+ * reward between 0 and 1. The reward is added to every node on the path, so the tree grows towards the moves that
+ * score best. The move played is the root move with the most playouts. <p/>
+ * Every thread of the search runs playouts on the same tree. A thread adds a virtual loss to each node on its path
+ * until its playout is done, so that the other threads spread out over other moves instead of repeating it. <p/>
+ * The nodes are kept in a pool of arrays of fixed size, the children of a node taking consecutive slots, and the
+ * search stops early if the pool fills up. When the next search starts from a position the tree has already reached,
+ * usually two moves below the old root, that subtree is copied into a second pool and becomes the new tree, so the
+ * playouts of the previous search are kept.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Monte_Carlo_tree_search">Wikipedia article on Monte-Carlo tree search</a>
+ */
+final class MonteCarloSearch {
+    /**
+     * the number of nodes in each of the two pools, about 24 bytes each
+     */
+    static final int POOL_SIZE = 1 << 20;
+
+    // the states of a node's children slot that are not the index of its first child
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final int TERMINAL = -3;
+    private static final int NO_ROOM = -4;
+
+    // the weight of the exploration term of the upper confidence bound
+    private static final double EXPLORATION = 1.0;
+    // the playouts a thread counts for each node on its path while its playout is running
+    private static final int VIRTUAL_LOSS = 3;
+    // the playouts through a leaf before it is expanded, so that the pool is not filled by leaves seen once
+    private static final int EXPAND_VISITS = 4;
+    // the random moves played from a leaf before it is scored
+    private static final int PLAYOUT_MOVES = 4;
+    // the score difference that turns a reward of one half into about three quarters
+    private static final double SCORE_SCALE = 600;
+    // rewards are added up as fixed point numbers, a reward of 1 is this many units
+    private static final long REWARD_UNIT = 1 << 16;
+    // the playouts of the main thread between checks of the clock and reports of the best line
+    private static final int REPORT_INTERVAL = 256;
+
+    private final AI ai;
+    private Tree tree;
+    private Tree spare;
+    // the position at the root of the tree, to find the new root in when the next search starts
+    private PackedBoard rootBoard;
+    private int[] copySources;
+
+    private Worker[] workers = new Worker[0];
+    private Searcher.Control control;
+    private int maxDepth;
+    private long searchStart;
+
+    /**
+     * @param ai the AI that this search scores positions for
+     */
+    MonteCarloSearch(AI ai) {
+        this.ai = ai;
+    }
+
+    /**
+     * Search the position until the control is stopped, the best line of the tree is maxDepth deep or the pool is
+     * full, reporting the best move to the control each time the best line gets deeper
+     *
+     * @param board    the root position, the AI must be the side to move
+     * @param control  the control that stops the search
+     * @param pool     the pool to run the helper threads on, or null to search on the calling thread only
+     * @param maxDepth the deepest best line to search, in depth units
+     * @return the encoded root move with the most playouts, or PackedBoard.NO_MOVE if none was tried
+     */
+    int search(PackedBoard board, Searcher.Control control, ForkJoinPool pool, int maxDepth) {
+        this.control = control;
+        this.maxDepth = maxDepth;
+        this.searchStart = System.nanoTime();
+        moveRoot(board);
+
+        int helpers = pool == null ? 0 : pool.getParallelism();
+        if (workers.length != helpers + 1) {
+            workers = new Worker[helpers + 1];
+            for (int i = 0; i <= helpers; i += 1) {
+                workers[i] = new Worker(i == 0);
+            }
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(helpers);
+        for (int i = 1; i <= helpers; i += 1) {
+            Worker helper = workers[i];
+            helper.reset(board);
+            tasks.add(pool.submit(helper::run));
+        }
+        workers[0].reset(board);
+        workers[0].run();
+        control.stop();
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return tree.bestChild(0) < 0 ? PackedBoard.NO_MOVE : tree.moves[tree.bestChild(0)];
+    }
+
+    /**
+     * Add up the counters of every thread of the last search
+     *
+     * @return the total, with the iterations of the main thread, one for each time its best line got deeper
+     */
+    SearchCounters counters() {
+        SearchCounters total = new SearchCounters();
+        for (Worker worker : workers) {
+            total.add(worker.counters);
+        }
+        if (workers.length > 0) {
+            total.iterations.addAll(workers[0].counters.iterations);
+        }
+        return total;
+    }
+
+    /**
+     * Guess the move the opponent will make, the reply with the most playouts in the tree
+     *
+     * @param board the current game state, with the opponent to move
+     * @return the encoded move, or PackedBoard.NO_MOVE if the position is not in the tree
+     */
+    int expectedReply(PackedBoard board) {
+        int node = rootBoard == null ? -1 : find(board);
+        int best = node < 0 ? -1 : tree.bestChild(node);
+        return best < 0 ? PackedBoard.NO_MOVE : tree.moves[best];
+    }
+
+    /**
+     * Throw the tree away, the next search starts from scratch
+     */
+    void clear() {
+        rootBoard = null;
+    }
+
+    // make the node of the tree for the board the new root, or start a new tree if the board is not in the tree
+    private void moveRoot(PackedBoard board) {
+        if (tree == null) {
+            tree = new Tree(POOL_SIZE);
+        }
+        int node = rootBoard == null ? -1 : find(board);
+        if (node > 0) {
+            if (spare == null) {
+                spare = new Tree(POOL_SIZE);
+                copySources = new int[POOL_SIZE];
+            }
+            copySubtree(node);
+            Tree old = tree;
+            tree = spare;
+            spare = old;
+        } else if (node < 0) {
+            tree.reset();
+        }
+        rootBoard = new PackedBoard(board);
+    }
+
+    // find the node for the board within two moves of the root, or -1
+    private int find(PackedBoard board) {
+        long hash = board.hash();
+        if (rootBoard.hash() == hash) {
+            return 0;
+        }
+        PackedBoard scratch = new PackedBoard(rootBoard);
+        for (int child = tree.firstChild(0), end = child + tree.numChildren(0); child >= 0 && child < end; child++) {
+            scratch.makeMove(tree.moves[child]);
+            if (scratch.hash() == hash) {
+                return child;
+            }
+            for (int grandchild = tree.firstChild(child), last = grandchild + tree.numChildren(child);
+                 grandchild >= 0 && grandchild < last; grandchild++) {
+                scratch.makeMove(tree.moves[grandchild]);
+                boolean found = scratch.hash() == hash;
+                scratch.undoMove();
+                if (found) {
+                    return grandchild;
+                }
+            }
+            scratch.undoMove();
+        }
+        return -1;
+    }
+
+    // copy the subtree below the node into the spare pool, breadth first so that siblings stay consecutive
+    private void copySubtree(int node) {
+        spare.reset();
+        spare.copyNode(0, tree, node);
+        copySources[0] = node;
+        for (int copy = 0; copy < spare.size; copy++) {
+            int source = copySources[copy];
+            int first = tree.firstChild(source);
+            if (first < 0) {
+                // a node that could not be expanded before may have room now
+                spare.children.set(copy, first == TERMINAL ? TERMINAL : UNEXPANDED);
+                continue;
+            }
+            int count = tree.numChildren(source);
+            int copyFirst = spare.size;
+            spare.size += count;
+            for (int i = 0; i < count; i++) {
+                spare.copyNode(copyFirst + i, tree, first + i);
+                copySources[copyFirst + i] = first + i;
+            }
+            spare.numChildren[copy] = count;
+            spare.children.set(copy, copyFirst);
+        }
+        spare.allocated.set(spare.size);
+    }
+
+    /**
+     * The nodes of a search tree, one slot of each array for each node. Node 0 is the root, and the children of a
+     * node take consecutive slots
+     */
+    private static final class Tree {
+        // the encoded move that leads to each node
+        final int[] moves;
+        final int[] numChildren;
+        // the slot of the first child of each node, or one of the states UNEXPANDED, EXPANDING, TERMINAL, NO_ROOM
+        final AtomicIntegerArray children;
+        // the playouts through each node, including the virtual losses of the playouts still running
+        final AtomicIntegerArray visits;
+        // the sum of the rewards of the playouts through each node, for the player who made the move to it
+        final AtomicLongArray rewards;
+        final AtomicInteger allocated = new AtomicInteger();
+        // the slots in use when the tree is not being searched
+        int size;
+        volatile boolean full;
+
+        Tree(int capacity) {
+            moves = new int[capacity];
+            numChildren = new int[capacity];
+            children = new AtomicIntegerArray(capacity);
+            visits = new AtomicIntegerArray(capacity);
+            rewards = new AtomicLongArray(capacity);
+        }
+
+        // leave only an unexpanded root
+        void reset() {
+            size = 1;
+            allocated.set(1);
+            full = false;
+            moves[0] = PackedBoard.NO_MOVE;
+            children.set(0, UNEXPANDED);
+            visits.set(0, 0);
+            rewards.set(0, 0);
+        }
+
+        // reserve consecutive slots for count children, or return -1 if the pool is full
+        int allocate(int count) {
+            if (allocated.get() + count > moves.length) {
+                full = true;
+                return -1;
+            }
+            int first = allocated.getAndAdd(count);
+            if (first + count > moves.length) {
+                full = true;
+                return -1;
+            }
+            return first;
+        }
+
+        void copyNode(int slot, Tree from, int node) {
+            moves[slot] = from.moves[node];
+            visits.set(slot, from.visits.get(node));
+            rewards.set(slot, from.rewards.get(node));
+            children.set(slot, UNEXPANDED);
+        }
+
+        int firstChild(int node) {
+            return children.get(node);
+        }
+
+        int numChildren(int node) {
+            return children.get(node) < 0 ? 0 : numChildren[node];
+        }
+
+        // the child with the most playouts, or -1 if the node has not been expanded
+        int bestChild(int node) {
+            int first = children.get(node);
+            int best = -1;
+            for (int child = first, end = first + numChildren(node); child < end; child++) {
+                if (best < 0 || visits.get(child) > visits.get(best)) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * One thread of the search, with its own copy of the root position
+     */
+    private final class Worker {
+        private final boolean main;
+        private final SearchCounters counters = new SearchCounters();
+        private final MoveOrderer orderer = new MoveOrderer();
+        private final SplittableRandom random = new SplittableRandom();
+        private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        private final int[] path = new int[MoveOrderer.MAX_PLY];
+        private PackedBoard board;
+        private Color color;
+        private int aiSide;
+        private int reportedDepth;
+
+        Worker(boolean main) {
+            this.main = main;
+        }
+
+        void reset(PackedBoard root) {
+            board = new PackedBoard(root);
+            color = ai.getColor();
+            aiSide = PackedBoard.side(color);
+            reportedDepth = 0;
+            counters.clear();
+        }
+
+        void run() {
+            long playouts = 0;
+            long iterationStart = searchStart;
+            long iterationNodes = 0;
+            while (!control.isStopped()) {
+                playout();
+                if (++playouts % REPORT_INTERVAL != 0) {
+                    continue;
+                }
+                control.checkClock();
+                if (tree.full) {
+                    control.stop();
+                } else if (main) {
+                    int depth = bestLineDepth();
+                    if (depth > reportedDepth) {
+                        reportedDepth = depth;
+                        long now = System.nanoTime();
+                        counters.iterations.add(new long[]{depth, now - iterationStart, counters.nodes - iterationNodes});
+                        iterationStart = now;
+                        iterationNodes = counters.nodes;
+                        int best = tree.bestChild(0);
+                        control.report(depth, tree.moves[best], score(best));
+                        if (depth >= maxDepth) {
+                            control.stop();
+                        }
+                    }
+                }
+            }
+        }
+
+        // walk down to a leaf, expanding it if it has been reached often enough, score it and update the path
+        private void playout() {
+            int node = 0;
+            int length = 0;
+            int seen = tree.visits.getAndAdd(0, VIRTUAL_LOSS);
+            path[length++] = 0;
+            while (length < path.length) {
+                int first = tree.firstChild(node);
+                if (first == UNEXPANDED && (node == 0 || seen >= EXPAND_VISITS)) {
+                    first = expand(node);
+                }
+                if (first < 0) {
+                    break;
+                }
+                node = select(node, first);
+                seen = tree.visits.getAndAdd(node, VIRTUAL_LOSS);
+                board.makeMove(tree.moves[node]);
+                counters.nodes++;
+                path[length++] = node;
+            }
+            counters.maxPly = Math.max(counters.maxPly, length - 1 + PLAYOUT_MOVES);
+
+            long reward = Math.round(rollout() * REWARD_UNIT);
+            for (int i = length - 1; i >= 0; i--) {
+                // the move to the node at i was made by the AI if i is odd, the AI is to move at the root
+                boolean aiMoved = (i & 1) == 1;
+                tree.visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+                tree.rewards.addAndGet(path[i], aiMoved ? reward : REWARD_UNIT - reward);
+                if (i > 0) {
+                    board.undoMove();
+                }
+            }
+        }
+
+        // the child with the best upper confidence bound, the children not tried yet are taken first in move order
+        private int select(int node, int first) {
+            int end = first + tree.numChildren[node];
+            double logVisits = Math.log(Math.max(tree.visits.get(node), 1));
+            int best = first;
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < end; child++) {
+                int visits = tree.visits.get(child);
+                if (visits == 0) {
+                    return child;
+                }
+                double bound = (double) tree.rewards.get(child) / REWARD_UNIT / visits
+                        + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // add the children of the node, which must be the current position, unless another thread is already doing so
+        private int expand(int node) {
+            if (!tree.children.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                return tree.firstChild(node);
+            }
+            int side = board.sideToMove();
+            int end = Rules.winner(board) != Color.NEUTRAL ? 0 : MoveGenerator.generateMoves(board, side, moveBuffer, 0);
+            if (end == 0) {
+                tree.children.set(node, TERMINAL);
+                return TERMINAL;
+            }
+            int first = tree.allocate(end);
+            if (first < 0) {
+                tree.children.set(node, NO_ROOM);
+                return NO_ROOM;
+            }
+            // the most promising moves are tried first
+            orderer.order(moveBuffer, 0, end, PackedBoard.NO_MOVE, 0, side);
+            for (int i = 0; i < end; i++) {
+                tree.moves[first + i] = moveBuffer[i];
+                tree.visits.set(first + i, 0);
+                tree.rewards.set(first + i, 0);
+                tree.children.set(first + i, UNEXPANDED);
+            }
+            tree.numChildren[node] = end;
+            // publishes the children to the other threads
+            tree.children.set(node, first);
+            return first;
+        }
+
+        // play a few random moves, preferring the best attack, and score the position reached, from 0 to 1 for the AI
+        private double rollout() {
+            int played = 0;
+            Color winner = Rules.winner(board);
+            while (winner == Color.NEUTRAL && played < PLAYOUT_MOVES) {
+                int end = MoveGenerator.generateMoves(board, board.sideToMove(), moveBuffer, 0);
+                if (end == 0) {
+                    break;
+                }
+                int move = moveBuffer[random.nextInt(end)];
+                if (random.nextBoolean()) {
+                    move = bestAttack(end, move);
+                }
+                board.makeMove(move);
+                counters.nodes++;
+                played++;
+                winner = Rules.winner(board);
+            }
+
+            double reward;
+            if (winner != Color.NEUTRAL) {
+                reward = winner == color ? 1 : 0;
+            } else {
+                reward = 1 / (1 + Math.exp(-ai.getScore(board) / SCORE_SCALE));
+                counters.evaluations++;
+            }
+            for (; played > 0; played--) {
+                board.undoMove();
+            }
+            return reward;
+        }
+
+        // the attack on the most valuable victim among the generated moves, or the given move if there are none
+        private int bestAttack(int end, int move) {
+            int bestValue = -1;
+            for (int i = 0; i < end; i++) {
+                if (PackedBoard.moveType(moveBuffer[i]) == MoveType.ATK) {
+                    int value = MoveOrderer.value(PackedBoard.pieceType(PackedBoard.moveCaptured(moveBuffer[i])));
+                    if (value > bestValue) {
+                        bestValue = value;
+                        move = moveBuffer[i];
+                    }
+                }
+            }
+            return move;
+        }
+
+        // the depth of the line of most played moves from the root, in depth units
+        private int bestLineDepth() {
+            int depth = 0;
+            for (int node = tree.bestChild(0); node >= 0 && tree.visits.get(node) > EXPAND_VISITS;
+                 node = tree.bestChild(node)) {
+                depth += AI.DEPTH_STEP;
+            }
+            return depth;
+        }
+
+        // the average reward of the node turned back into a score for the AI, the inverse of the squashing
+        private int score(int node) {
+            double reward = (double) tree.rewards.get(node) / REWARD_UNIT / Math.max(tree.visits.get(node), 1);
+            reward = Math.min(Math.max(reward, 1e-6), 1 - 1e-6);
+            return (int) Math.round(SCORE_SCALE * Math.log(reward / (1 - reward)));
+        }
+    }
+}
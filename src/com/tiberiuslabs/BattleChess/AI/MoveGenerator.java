@@ -0,0 +1,207 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.MoveTables;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+/**
+ * Generates the moves of a PackedBoard as encoded ints, written into an array supplied by the caller so that the
+ * search can generate moves without allocating. <p/>
+ * The moves are the ones allowed by Rules.getValidMoves and Rules.getValidRecruitments, except that a recruitment is
+ * generated once for each type of unit in the graveyard rather than once for each unit, since recruiting any unit of
+ * a type has the same effect on the board. The cells the units can reach come from the precomputed MoveTables.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.PackedBoard#encode(int, int, com.tiberiuslabs.BattleChess.Types.MoveType, byte, byte)
+ * @see com.tiberiuslabs.BattleChess.ChessEngine.Rules
+ * @see com.tiberiuslabs.BattleChess.ChessEngine.MoveTables
+ */
+public final class MoveGenerator {
+    private static final int MAX_UNITS = Init.defaultPositions.size();
+    private static final UnitType[] TYPES = UnitType.values();
+    private static final Color[] COLORS = {Color.WHITE, Color.BLACK};
+
+    // the capitol of each player
+    private static final int[] CAPITOLS = {
+            Init.cellIndex(Rules.getCapitol(Color.WHITE)), Init.cellIndex(Rules.getCapitol(Color.BLACK))};
+
+    /**
+     * the most moves that can be generated for any position, the size of array that a call to generateMoves or
+     * generateAttacks may need. Each of a player's units can reach at most every cell not occupied by the player's
+     * other units, and each type of unit can be recruited to each recruitment cell
+     */
+    public static final int MAX_MOVES =
+            MAX_UNITS * (Init.NUM_CELLS - MAX_UNITS) + TYPES.length * MoveTables.recruitCells().length;
+
+    // scratch space for countTargets, which is called by the score functions and so has no array of its own
+    private static final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[MAX_MOVES]);
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generate all of the moves, attacks and recruitments available to a player
+     *
+     * @param board the current game state
+     * @param side  the player index of the player to generate moves for
+     * @param moves the array to write the encoded moves into, must have at least MAX_MOVES free after start
+     * @param start the index of moves to write the first move at
+     * @return the index after the last move written
+     */
+    public static int generateMoves(PackedBoard board, int side, int[] moves, int start) {
+        int end = generate(board, side, moves, start, true);
+        return generateRecruitments(board, side, moves, end);
+    }
+
+    /**
+     * Generate the attacks available to a player, the moves that capture an enemy unit
+     *
+     * @param board the current game state
+     * @param side  the player index of the player to generate attacks for
+     * @param moves the array to write the encoded moves into, must have at least MAX_MOVES free after start
+     * @param start the index of moves to write the first move at
+     * @return the index after the last move written
+     */
+    public static int generateAttacks(PackedBoard board, int side, int[] moves, int start) {
+        return generate(board, side, moves, start, false);
+    }
+
+    /**
+     * Count the distinct cells that a player's units can move to or attack
+     *
+     * @param board the current game state
+     * @param side  the player index
+     * @return the number of cells that at least one of the player's units can move to
+     */
+    public static int countTargets(PackedBoard board, int side) {
+        int[] moves = scratch.get();
+        int end = generate(board, side, moves, 0, true);
+
+        // one bit per cell
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < end; i++) {
+            int to = PackedBoard.moveTo(moves[i]);
+            if (to < 64) {
+                low |= 1L << to;
+            } else {
+                high |= 1L << to;
+            }
+        }
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+
+    // the moves of the units on the board, only attacks unless quiet is set
+    private static int generate(PackedBoard board, int side, int[] moves, int end, boolean quiet) {
+        for (int i = 0; i < board.numPieces(side); i++) {
+            int from = board.pieceCell(side, i);
+            byte piece = board.piece(from);
+            switch (PackedBoard.pieceType(piece)) {
+                case PAWN:
+                    end = pawn(board, side, from, piece, moves, end, quiet);
+                    break;
+                case ROOK:
+                    end = slide(board, side, from, piece, 0, 6, moves, end, quiet);
+                    break;
+                case BISHOP:
+                    end = slide(board, side, from, piece, 6, 12, moves, end, quiet);
+                    break;
+                case QUEEN:
+                    end = slide(board, side, from, piece, 0, 12, moves, end, quiet);
+                    break;
+                case KNIGHT:
+                    end = step(board, side, from, piece, MoveTables.knightJumps(from), moves, end, quiet);
+                    break;
+                case KING:
+                    end = step(board, side, from, piece, MoveTables.kingSteps(from), moves, end, quiet);
+                    break;
+            }
+        }
+        return end;
+    }
+
+    // move along each direction in [firstDir, lastDir) until the edge of the board or another unit is reached
+    private static int slide(PackedBoard board, int side, int from, byte piece, int firstDir, int lastDir,
+                             int[] moves, int end, boolean quiet) {
+        for (int dir = firstDir; dir < lastDir; dir++) {
+            for (int to : MoveTables.ray(from, dir)) {
+                byte other = board.piece(to);
+                if (other == PackedBoard.EMPTY) {
+                    if (quiet) {
+                        moves[end++] = PackedBoard.encode(from, to, MoveType.MOV, piece, PackedBoard.EMPTY);
+                    }
+                    continue;
+                }
+                if (PackedBoard.pieceSide(other) != side) {
+                    moves[end++] = PackedBoard.encode(from, to, MoveType.ATK, piece, other);
+                }
+                break;
+            }
+        }
+        return end;
+    }
+
+    // move a single step to each of the targets
+    private static int step(PackedBoard board, int side, int from, byte piece, int[] targets,
+                            int[] moves, int end, boolean quiet) {
+        for (int to : targets) {
+            byte other = board.piece(to);
+            if (other == PackedBoard.EMPTY) {
+                if (quiet) {
+                    moves[end++] = PackedBoard.encode(from, to, MoveType.MOV, piece, PackedBoard.EMPTY);
+                }
+            } else if (PackedBoard.pieceSide(other) != side) {
+                moves[end++] = PackedBoard.encode(from, to, MoveType.ATK, piece, other);
+            }
+        }
+        return end;
+    }
+
+    // pawns move forward onto empty tiles, and attack diagonally
+    private static int pawn(PackedBoard board, int side, int from, byte piece, int[] moves, int end, boolean quiet) {
+        int front = MoveTables.pawnPush(side, from);
+        if (quiet && front >= 0 && board.piece(front) == PackedBoard.EMPTY) {
+            moves[end++] = PackedBoard.encode(from, front, MoveType.MOV, piece, PackedBoard.EMPTY);
+
+            // a pawn that has not left its start cell may move two tiles
+            int jump = MoveTables.pawnJump(side, from);
+            if (jump >= 0 && board.piece(jump) == PackedBoard.EMPTY
+                    && board.unit(from).equals(MoveTables.homeUnit(from))) {
+                moves[end++] = PackedBoard.encode(from, jump, MoveType.MOV, piece, PackedBoard.EMPTY);
+            }
+        }
+
+        for (int to : MoveTables.pawnAttacks(side, from)) {
+            byte other = board.piece(to);
+            if (other != PackedBoard.EMPTY && PackedBoard.pieceSide(other) != side) {
+                moves[end++] = PackedBoard.encode(from, to, MoveType.ATK, piece, other);
+            }
+        }
+        return end;
+    }
+
+    // one recruitment for each type of unit in the graveyard and each empty tile next to a city
+    private static int generateRecruitments(PackedBoard board, int side, int[] moves, int end) {
+        Color player = COLORS[side];
+        byte capitol = board.piece(CAPITOLS[side]);
+        if (!board.hasKing(player) || capitol == PackedBoard.EMPTY || PackedBoard.pieceSide(capitol) != side
+                || board.numCitiesHeld(player) < 3) {
+            return end;
+        }
+
+        for (UnitType unitType : TYPES) {
+            if (board.numDead(side, unitType) == 0) {
+                continue;
+            }
+            byte piece = PackedBoard.pieceCode(unitType, player);
+            for (int to : MoveTables.recruitCells()) {
+                if (board.piece(to) == PackedBoard.EMPTY) {
+                    moves[end++] = PackedBoard.encode(0, to, MoveType.REC, piece, PackedBoard.EMPTY);
+                }
+            }
+        }
+        return end;
+    }
+}
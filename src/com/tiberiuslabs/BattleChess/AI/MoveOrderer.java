@@ -0,0 +1,172 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.util.Arrays;
+
+/**
+ * Sorts the moves of a node so that the moves most likely to cause a cutoff are searched first. <p/>
+ * The order is:
+ * <ol>
+ * <li>the best move stored in the transposition table
+ * <li>the killer moves of the current ply, moves that caused a cutoff in a sibling node
+ * <li>attacks, most valuable victim first and least valuable attacker first among equal victims (MVV-LVA)
+ * <li>recruitments, most valuable recruit first
+ * <li>the remaining quiet moves, by how often they have caused cutoffs anywhere in the tree (history heuristic)
+ * </ol>
+ */
+public class MoveOrderer {
+    /**
+     * the deepest ply that killer moves are kept for
+     */
+    public static final int MAX_PLY = 128;
+
+    // the relative value of each unit type, indexed by UnitType ordinal
+    private static final int[] VALUES = {2, 3, 5, 5, 9, 100};
+
+    private static final int TABLE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+    private static final int ATTACK_SCORE = 1 << 28;
+    private static final int RECRUIT_SCORE = 1 << 27;
+    private static final int MAX_HISTORY = RECRUIT_SCORE - 1;
+
+    private final int[][] killers = new int[MAX_PLY][2];
+    // indexed by side and the start/final cells of the encoded move
+    private final int[][] history = new int[2][1 << 14];
+    private int[] keys = new int[256];
+
+    /**
+     * Get the relative value of a unit type
+     *
+     * @param unitType the type of unit
+     * @return the value of the unit in pawns, roughly
+     */
+    public static int value(UnitType unitType) {
+        return VALUES[unitType.ordinal()];
+    }
+
+    /**
+     * Prepare for a new search, killer moves are forgotten and the history scores are aged so that the new search
+     * is guided mostly by what it finds itself
+     */
+    public void newSearch() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedBoard.NO_MOVE);
+        }
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 2;
+            }
+        }
+    }
+
+    /**
+     * Forget the killer moves and the history scores of every earlier search
+     */
+    public void clear() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedBoard.NO_MOVE);
+        }
+        for (int[] sideHistory : history) {
+            Arrays.fill(sideHistory, 0);
+        }
+    }
+
+    /**
+     * Sort the moves of a node in place, best candidates first
+     *
+     * @param moves     the array holding the encoded moves of the node
+     * @param start     the index of the first move of the node
+     * @param end       the index after the last move of the node
+     * @param tableMove the encoded best move from the transposition table, or PackedBoard.NO_MOVE
+     * @param ply       the distance of the node from the root of the search
+     * @param side      the player index of the side to move
+     */
+    public void order(int[] moves, int start, int end, int tableMove, int ply, int side) {
+        ensureKeys(end - start);
+        int[] plyKillers = ply < MAX_PLY ? killers[ply] : null;
+
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int key;
+            if (move == tableMove) {
+                key = TABLE_SCORE;
+            } else if (plyKillers != null && move == plyKillers[0]) {
+                key = KILLER_SCORE + 1;
+            } else if (plyKillers != null && move == plyKillers[1]) {
+                key = KILLER_SCORE;
+            } else {
+                switch (PackedBoard.moveType(move)) {
+                    case ATK:
+                        key = ATTACK_SCORE + exchangeKey(move);
+                        break;
+                    case REC:
+                        key = RECRUIT_SCORE + value(PackedBoard.moveUnitType(move));
+                        break;
+                    default:
+                        key = history[side][move & 0x3FFF];
+                        break;
+                }
+            }
+            insert(moves, start, i, move, key);
+        }
+    }
+
+    /**
+     * Sort a list of attacks in place by MVV-LVA alone, used by the quiescence search where every move is an attack
+     *
+     * @param moves the array holding the encoded attacks
+     * @param start the index of the first attack
+     * @param end   the index after the last attack
+     */
+    public void orderAttacks(int[] moves, int start, int end) {
+        ensureKeys(end - start);
+        for (int i = start; i < end; i++) {
+            insert(moves, start, i, moves[i], exchangeKey(moves[i]));
+        }
+    }
+
+    // most valuable victim first, then least valuable attacker
+    private static int exchangeKey(int move) {
+        return value(PackedBoard.pieceType(PackedBoard.moveCaptured(move))) * 128
+                - value(PackedBoard.moveUnitType(move));
+    }
+
+    private void ensureKeys(int size) {
+        if (keys.length < size) {
+            keys = new int[size * 2];
+        }
+    }
+
+    // insertion sort, the lists are short and usually partly sorted already
+    private void insert(int[] moves, int start, int i, int move, int key) {
+        int j = i - start;
+        while (j > 0 && keys[j - 1] < key) {
+            keys[j] = keys[j - 1];
+            moves[start + j] = moves[start + j - 1];
+            j -= 1;
+        }
+        keys[j] = key;
+        moves[start + j] = move;
+    }
+
+    /**
+     * Record a move that caused a beta cutoff so that it is tried earlier in later nodes
+     *
+     * @param move  the encoded move that caused the cutoff
+     * @param ply   the distance of the node from the root of the search
+     * @param depth the remaining depth of the node, deeper cutoffs count for more
+     * @param side  the player index of the side that made the move
+     */
+    public void cutoff(int move, int ply, int depth, int side) {
+        if (ply < MAX_PLY && killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (PackedBoard.moveType(move) == MoveType.MOV) {
+            int[] sideHistory = history[side];
+            sideHistory[move & 0x3FFF] = Math.min(sideHistory[move & 0x3FFF] + depth * depth, MAX_HISTORY);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * A read-only book of opening moves, keyed by the Zobrist hash of the position and holding the replies played from
+ * it with a weight for each. The book file is memory mapped, so opening it costs nothing up front and the pages of
+ * the file are shared between every engine that reads it. <p/>
+ * The file is a 16 byte header, the magic number, the version, the number of entries and a reserved int, followed by
+ * the entries sorted by hash and then by move. Each entry is 16 bytes: the hash as a long, the encoded move as an int
+ * and the weight of the move as an int. All values are big-endian.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.OpeningBookBuilder
+ * @see com.tiberiuslabs.BattleChess.AI.Zobrist
+ */
+public final class OpeningBook {
+    /**
+     * the system property naming a book file to use instead of the one on the classpath
+     */
+    public static final String BOOK_PROPERTY = "battlechess.book";
+    /**
+     * the classpath resource holding the default book
+     */
+    public static final String BOOK_RESOURCE = "/book/openings.book";
+
+    private static final int MAGIC = 0x4243424B;  // "BCBK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported opening book version " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        if (size < 0 || (long) size * ENTRY_SIZE + HEADER_SIZE > buffer.capacity()) {
+            throw new IOException("truncated opening book");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Map an opening book file into memory
+     *
+     * @param file the book file
+     * @return the book
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer.order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    /**
+     * Open the default book: the file named by the battlechess.book system property if it is set, otherwise the book
+     * on the classpath. A book packed in a jar is copied to a temporary file first, since only files can be mapped
+     *
+     * @return the book, or null if there is no book or it cannot be read
+     */
+    public static OpeningBook loadDefault() {
+        try {
+            String property = System.getProperty(BOOK_PROPERTY);
+            if (property != null) {
+                return open(Paths.get(property));
+            }
+
+            URL url = OpeningBook.class.getResource(BOOK_RESOURCE);
+            if (url == null) {
+                return null;
+            }
+            if (url.getProtocol().equals("file")) {
+                return open(Paths.get(url.toURI()));
+            }
+            Path copy = Files.createTempFile("openings", ".book");
+            copy.toFile().deleteOnExit();
+            try (InputStream in = url.openStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return open(copy);
+        } catch (IOException | URISyntaxException e) {
+            // play without a book rather than not at all
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of entries in the book
+     *
+     * @return the number of (position, move) entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Pick a reply to the position from the book, each of the book's replies is picked with a chance proportional to
+     * its weight. A reply that is not a legal move of the position, as could happen on a hash collision, is never
+     * returned
+     *
+     * @param board  the current game state, with the player to move set
+     * @param random the source of randomness for the pick
+     * @return the encoded move, or PackedBoard.NO_MOVE if the book has no reply to the position
+     */
+    public int probe(PackedBoard board, Random random) {
+        long hash = board.hash();
+        int first = firstEntry(hash);
+        int last = first;
+        long total = 0;
+        while (last < size && hash(last) == hash) {
+            total += weight(last);
+            last++;
+        }
+        if (total <= 0) {
+            return PackedBoard.NO_MOVE;
+        }
+
+        long pick = (long) (random.nextDouble() * total);
+        int move = PackedBoard.NO_MOVE;
+        for (int i = first; i < last; i++) {
+            pick -= weight(i);
+            if (pick < 0) {
+                move = move(i);
+                break;
+            }
+        }
+        return isLegal(board, move) ? move : PackedBoard.NO_MOVE;
+    }
+
+    /**
+     * Write a book file
+     *
+     * @param file    the file to write, replaced if it exists
+     * @param entries the weight of each move of each position, keyed by position hash and then by encoded move
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Map<Long, Map<Integer, Integer>> entries) throws IOException {
+        // probe compares hashes as signed longs, so sort them the same way
+        Map<Long, Map<Integer, Integer>> sorted = new TreeMap<>(entries);
+        int count = 0;
+        for (Map<Integer, Integer> moves : sorted.values()) {
+            count += moves.size();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ENTRY_SIZE).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+        for (Map.Entry<Long, Map<Integer, Integer>> position : sorted.entrySet()) {
+            for (Map.Entry<Integer, Integer> move : new TreeMap<>(position.getValue()).entrySet()) {
+                buffer.putLong(position.getKey()).putInt(move.getKey()).putInt(move.getValue());
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // the index of the first entry whose hash is not less than the given hash
+    private int firstEntry(long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hash(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long hash(int entry) {
+        return buffer.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private int move(int entry) {
+        return buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+
+    private int weight(int entry) {
+        return buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+    }
+
+    private static boolean isLegal(PackedBoard board, int move) {
+        if (move == PackedBoard.NO_MOVE) {
+            return false;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+        for (int i = 0; i < end; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
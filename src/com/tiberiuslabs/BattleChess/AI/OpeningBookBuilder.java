@@ -0,0 +1,107 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds an opening book offline by letting the engine play the opening against itself. Run from the command line:
+ * <pre>
+ *     java com.tiberiuslabs.BattleChess.AI.OpeningBookBuilder [-depth N] [-plies N] [-games N] [-seed N] [-out file]
+ * </pre>
+ * The first game starts from the initial position, every other game starts with a few random moves so that the book
+ * also covers replies to openings the engine would not choose itself. The random moves are not added to the book,
+ * only the moves the engine searched for: -plies of them per game, each searched to -depth. A move gets one unit of
+ * weight for each game it was played in.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.OpeningBook
+ */
+public final class OpeningBookBuilder {
+    // the number of random moves at the start of each game after the first
+    private static final int RANDOM_PLIES = 2;
+
+    private final AI[] ais = new AI[2];
+    private final Random random;
+    private final int plies;
+    private final Map<Long, Map<Integer, Integer>> entries = new HashMap<>();
+
+    private OpeningBookBuilder(int depth, int plies, long seed) {
+        ais[0] = new AI(ScoreFuncFactory.buildScoreFuncs(), Color.WHITE);
+        ais[1] = new AI(ScoreFuncFactory.buildScoreFuncs(), Color.BLACK);
+        for (AI ai : ais) {
+            ai.setSearchLimits(Long.MAX_VALUE, depth);
+        }
+        this.random = new Random(seed);
+        this.plies = plies;
+    }
+
+    // play one game, recording the engine's moves
+    private void play(int randomPlies) throws AI.NoMoveException {
+        PackedBoard board = new PackedBoard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int ply = 0; ply < randomPlies + plies && Rules.winner(board) == Color.NEUTRAL; ply++) {
+            int move;
+            if (ply < randomPlies) {
+                int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+                move = moves[random.nextInt(end)];
+            } else {
+                move = PackedBoard.encode(ais[board.sideToMove()].getMove(board));
+                entries.computeIfAbsent(board.hash(), hash -> new HashMap<>()).merge(move, 1, Integer::sum);
+            }
+            board.makeMove(move);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int depth = 4 * AI.DEPTH_STEP;
+        int plies = 8;
+        int games = 100;
+        long seed = 1;
+        Path out = Paths.get("src" + OpeningBook.BOOK_RESOURCE);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(depth, plies, seed);
+        for (int game = 0; game < games; game++) {
+            try {
+                builder.play(game == 0 ? 0 : RANDOM_PLIES);
+            } catch (AI.NoMoveException e) {
+                // the game is over, keep the moves recorded so far
+            }
+            System.out.println("game " + (game + 1) + " of " + games + ", " + builder.entries.size() + " positions");
+        }
+
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        OpeningBook.write(out, builder.entries);
+        System.out.println("wrote " + OpeningBook.open(out).size() + " entries to " + out);
+    }
+}
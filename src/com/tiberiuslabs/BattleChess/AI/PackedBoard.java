@@ -0,0 +1,716 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory;
+import com.tiberiuslabs.BattleChess.ChessEngine.Board;
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.Move;
+import com.tiberiuslabs.BattleChess.ChessEngine.ReadOnlyBoard;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+import javafx.collections.ObservableMap;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Implement the Board interface on top of primitive arrays indexed by cell number so that the AI can make and undo
+ * moves without allocating. <p/>
+ * Each of the 91 tiles holds a piece code (unit type and color packed into a byte), each player has a list of the
+ * cells that their units occupy and a count of the units of each type in their graveyard. The codes of the units on
+ * the board are kept alongside the piece codes, so a copy of the board is a few hundred bytes of primitive arrays and
+ * the board can still be read through the Board interface by looking the codes up with Unit.fromCode.
+ * <p/>
+ * Units of the same type and color are interchangeable once they are dead, so the graveyard is only the counts: a
+ * recruitment names the type of unit rather than the unit, and there is one recruitment of each type for each cell.
+ * The units recruited on this board and the units of the graveyard view stand in for whichever units of that type
+ * are dead, they have negative ids. The game resolves a recruitment to one of its actual units when it plays it. <p/>
+ * Moves can be made either as Move objects or as moves encoded into an int, the search uses the encoded form so that
+ * it does not allocate. <p/>
+ * The board also tracks the side to move and a Zobrist hash of the position, both updated incrementally. The
+ * material and city terms of the evaluation are kept the same way, so that scoring a leaf of the search does not have
+ * to walk the board for them.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.Zobrist
+ * @see com.tiberiuslabs.BattleChess.AI.Score.PackedScoreFunc
+ */
+public class PackedBoard implements Board {
+    /**
+     * the piece code of an empty tile
+     */
+    public static final byte EMPTY = 0;
+    /**
+     * the bit set in the piece code of a black unit
+     */
+    public static final byte BLACK_BIT = 8;
+    /**
+     * the encoded move that no generated move can be equal to
+     */
+    public static final int NO_MOVE = 0;
+
+    // the from cell of an encoded recruitment
+    private static final int NO_CELL = 127;
+
+    private static final int MAX_UNITS = Init.defaultPositions.size();
+    private static final int NUM_TYPES = UnitType.values().length;
+    private static final UnitType[] TYPES = UnitType.values();
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+    private static final Color[] COLORS = {Color.WHITE, Color.BLACK};
+    private static final boolean[] CITY_CELLS = new boolean[Init.NUM_CELLS];
+
+    // the stand-ins for the dead units of each player and type, the kth dead unit has id -(k + 1)
+    private static final Unit[][][] DEAD_UNITS = new Unit[2][NUM_TYPES][MAX_UNITS];
+
+    static {
+        for (Position city : Init.cities) {
+            CITY_CELLS[Init.cellIndex(city)] = true;
+        }
+        for (int side = 0; side < 2; side++) {
+            for (UnitType unitType : TYPES) {
+                for (int k = 0; k < MAX_UNITS; k++) {
+                    DEAD_UNITS[side][unitType.ordinal()][k] = Unit.of(unitType, COLORS[side], -(k + 1));
+                }
+            }
+        }
+    }
+
+    private final byte[] cells = new byte[Init.NUM_CELLS];
+    // the code of the unit on each cell, 0 for an empty cell, see Unit.fromCode
+    private final short[] unitCodes = new short[Init.NUM_CELLS];
+
+    // cells occupied by each player's units, and the slot in that list for each occupied cell
+    private final byte[][] pieceCells = new byte[2][MAX_UNITS];
+    private final int[] numPieces = new int[2];
+    private final byte[] pieceSlot = new byte[Init.NUM_CELLS];
+    private final int[] numKings = new int[2];
+
+    // evaluation terms per player: the material value of the units on the board, and the officers standing on cities
+    private final int[] material = new int[2];
+    private final int[] citiesHeld = new int[2];
+
+    // the number of dead units of each player, and of each type
+    private final int[] numDead = new int[2];
+    private final int[][] deadCounts = new int[2][NUM_TYPES];
+
+    // the encoded moves that have been made, and the unit that each attack captured
+    private int[] history = new int[64];
+    private short[] capturedCodes = new short[64];
+    private int ply;
+    private int sideToMove;
+    private long hash;
+
+    private final Set<Unit> whiteActive = new UnitView(Color.WHITE, false);
+    private final Set<Unit> blackActive = new UnitView(Color.BLACK, false);
+    private final Set<Unit> whiteDead = new UnitView(Color.WHITE, true);
+    private final Set<Unit> blackDead = new UnitView(Color.BLACK, true);
+
+    /**
+     * Sets up the initial position of the game from Init.defaultPositions, with white to move
+     */
+    public PackedBoard() {
+        sideToMove = side(Color.WHITE);
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Unit unit = Init.defaultPositions.get(Init.cellPositions.get(cell));
+            if (unit != null) {
+                place(unit, cell);
+            }
+        }
+    }
+
+    /**
+     * Copies the state of the given board into the packed representation
+     *
+     * @param board  the game state to copy, must not be null
+     * @param toMove the color of the player whose turn it is
+     */
+    public PackedBoard(ReadOnlyBoard board, Color toMove) {
+        sideToMove = side(toMove);
+        hash = sideToMove == 1 ? Zobrist.side() : 0;
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Unit unit = board.get(Init.cellPositions.get(cell));
+            if (unit != null) {
+                place(unit, cell);
+            }
+        }
+        for (Unit unit : board.getGraveyard(Color.WHITE)) {
+            bury(unit);
+        }
+        for (Unit unit : board.getGraveyard(Color.BLACK)) {
+            bury(unit);
+        }
+    }
+
+    /**
+     * Copies the contents of the other PackedBoard into this PackedBoard, the move history is not copied
+     *
+     * @param other the board to get the game state information from, must not be null
+     */
+    public PackedBoard(PackedBoard other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.unitCodes, 0, unitCodes, 0, unitCodes.length);
+        System.arraycopy(other.pieceSlot, 0, pieceSlot, 0, pieceSlot.length);
+        System.arraycopy(other.numPieces, 0, numPieces, 0, numPieces.length);
+        System.arraycopy(other.numKings, 0, numKings, 0, numKings.length);
+        System.arraycopy(other.material, 0, material, 0, material.length);
+        System.arraycopy(other.citiesHeld, 0, citiesHeld, 0, citiesHeld.length);
+        System.arraycopy(other.numDead, 0, numDead, 0, numDead.length);
+        for (int c = 0; c < 2; c++) {
+            System.arraycopy(other.pieceCells[c], 0, pieceCells[c], 0, MAX_UNITS);
+            System.arraycopy(other.deadCounts[c], 0, deadCounts[c], 0, NUM_TYPES);
+        }
+        sideToMove = other.sideToMove;
+        hash = other.hash;
+    }
+
+    /**
+     * Get the piece code for a unit of the given type and color
+     *
+     * @param unitType the type of the unit
+     * @param color    the color of the unit's controlling player
+     * @return the packed piece code, never EMPTY
+     */
+    public static byte pieceCode(UnitType unitType, Color color) {
+        return (byte) ((unitType.ordinal() + 1) | (color == Color.BLACK ? BLACK_BIT : 0));
+    }
+
+    /**
+     * Get the unit type of a piece code
+     *
+     * @param piece a non-EMPTY piece code
+     * @return the unit type packed in the code
+     */
+    public static UnitType pieceType(byte piece) {
+        return TYPES[(piece & 7) - 1];
+    }
+
+    /**
+     * Get the player index (0 for white, 1 for black) of a piece code
+     *
+     * @param piece a non-EMPTY piece code
+     * @return the player index packed in the code
+     */
+    public static int pieceSide(byte piece) {
+        return (piece & BLACK_BIT) == 0 ? 0 : 1;
+    }
+
+    /**
+     * Get the index used by the per-player arrays for the given color
+     *
+     * @param color the player's color
+     * @return 1 for black, 0 otherwise
+     */
+    public static int side(Color color) {
+        return color == Color.BLACK ? 1 : 0;
+    }
+
+    /**
+     * Encode the move as an int made up of the final cell (bits 0-6), the start cell (bits 7-13, all set for a
+     * recruitment), the move type (bits 14-15), the type of the moving unit (bits 16-18) and the piece code of the
+     * captured unit (bits 19-22, EMPTY unless the move is an attack). Two moves that have the same effect on the board
+     * have the same code, even when they recruit different units of the same type
+     *
+     * @param move the move to encode, must not be null
+     * @return the encoded move, never NO_MOVE
+     */
+    public static int encode(Move move) {
+        int from = move.startPos == null ? NO_CELL : Init.cellIndex(move.startPos);
+        byte captured = move.defender == null ? EMPTY : pieceCode(move.defender.unitType, move.defender.color);
+        return encode(from, Init.cellIndex(move.finalPos), move.moveType,
+                pieceCode(move.attacker.unitType, move.attacker.color), captured);
+    }
+
+    /**
+     * Encode a move from its parts
+     *
+     * @param from     the start cell of the move, ignored for a recruitment
+     * @param to       the final cell of the move
+     * @param moveType the type of the move
+     * @param piece    the piece code of the moving or recruited unit
+     * @param captured the piece code of the unit on the final cell, EMPTY unless the move is an attack
+     * @return the encoded move, never NO_MOVE
+     * @see #encode(com.tiberiuslabs.BattleChess.ChessEngine.Move)
+     */
+    public static int encode(int from, int to, MoveType moveType, byte piece, byte captured) {
+        if (moveType == MoveType.REC) {
+            from = NO_CELL;
+        }
+        return to | from << 7 | moveType.ordinal() << 14 | ((piece & 7) - 1) << 16 | captured << 19;
+    }
+
+    /**
+     * Get the start cell of an encoded move
+     *
+     * @param move the encoded move
+     * @return the cell number the unit moves from, undefined for a recruitment
+     */
+    public static int moveFrom(int move) {
+        return move >>> 7 & 0x7F;
+    }
+
+    /**
+     * Get the final cell of an encoded move
+     *
+     * @param move the encoded move
+     * @return the cell number the unit moves or is recruited to
+     */
+    public static int moveTo(int move) {
+        return move & 0x7F;
+    }
+
+    /**
+     * Get the type of an encoded move
+     *
+     * @param move the encoded move
+     * @return MOV, ATK or REC
+     */
+    public static MoveType moveType(int move) {
+        return MOVE_TYPES[move >>> 14 & 3];
+    }
+
+    /**
+     * Get the type of the moving or recruited unit of an encoded move
+     *
+     * @param move the encoded move
+     * @return the type of the unit
+     */
+    public static UnitType moveUnitType(int move) {
+        return TYPES[move >>> 16 & 7];
+    }
+
+    /**
+     * Get the captured piece of an encoded move
+     *
+     * @param move the encoded move
+     * @return the piece code of the captured unit, EMPTY if the move is not an attack
+     */
+    public static byte moveCaptured(int move) {
+        return (byte) (move >>> 19 & 0xF);
+    }
+
+    /**
+     * Get the Zobrist hash of the current position, including the graveyards and the side to move
+     *
+     * @return the 64-bit hash of the position
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Get the player whose turn it is, every move made on the board passes the turn to the other player
+     *
+     * @return the player index of the side to move
+     */
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Get the piece code at the given cell
+     *
+     * @param cell the cell number
+     * @return the piece code, EMPTY if there is no unit on the cell
+     */
+    public byte piece(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Get the unit at the given cell
+     *
+     * @param cell the cell number
+     * @return the unit on the cell, or null if the cell is empty
+     */
+    public Unit unit(int cell) {
+        return Unit.fromCode(unitCodes[cell]);
+    }
+
+    /**
+     * Get the number of units the player has on the board
+     *
+     * @param side the player index
+     * @return the number of occupied cells in the player's piece list
+     */
+    public int numPieces(int side) {
+        return numPieces[side];
+    }
+
+    /**
+     * Get the cell of one of the player's units
+     *
+     * @param side the player index
+     * @param i    the index into the player's piece list, in [0, numPieces(side))
+     * @return the cell number occupied by the unit
+     */
+    public int pieceCell(int side, int i) {
+        return pieceCells[side][i];
+    }
+
+    /**
+     * Get the total material value of the player's units on the board, kept up to date as moves are made and undone
+     *
+     * @param side the player index
+     * @return the sum of ScoreFuncFactory.materialValue over the player's active units
+     * @see com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory#materialValue(com.tiberiuslabs.BattleChess.Types.UnitType)
+     */
+    public int material(int side) {
+        return material[side];
+    }
+
+    /**
+     * Get the number of units of the given type in the player's graveyard
+     *
+     * @param side     the player index
+     * @param unitType the type of unit to count
+     * @return the number of dead units of that type
+     */
+    public int numDead(int side, UnitType unitType) {
+        return deadCounts[side][unitType.ordinal()];
+    }
+
+    @Override
+    public Unit get(Position position) {
+        int cell = Init.cellIndex(position);
+        return cell < 0 ? null : Unit.fromCode(unitCodes[cell]);
+    }
+
+    /**
+     * Moves the unit at startPos to finalPos, capturing any unit at finalPos. Performs no validity checks
+     *
+     * @param startPos the starting position of the unit that is moving
+     * @param finalPos the final position to move the unit to
+     */
+    @Override
+    public void move(Position startPos, Position finalPos) {
+        Unit attacker = get(startPos);
+        Unit defender = get(finalPos);
+        if (attacker != null && Init.cellIndex(finalPos) >= 0) {
+            makeMove(new Move(attacker, startPos, defender, finalPos, defender == null ? MoveType.MOV : MoveType.ATK));
+        }
+    }
+
+    @Override
+    public void makeMove(Move move) {
+        if (move.moveType == MoveType.REC) {
+            // put the given unit on the board rather than a stand-in for its type
+            exhume(side(move.attacker.color), move.attacker.unitType);
+            place(move.attacker, Init.cellIndex(move.finalPos));
+            record(encode(move), null);
+        } else {
+            makeMove(encode(move));
+        }
+    }
+
+    /**
+     * Make an encoded move, the move must be valid for the current position. A recruitment puts a stand-in unit of the
+     * recruited type on the board
+     *
+     * @param move the encoded move
+     * @see #encode(int, int, com.tiberiuslabs.BattleChess.Types.MoveType, byte, byte)
+     */
+    public void makeMove(int move) {
+        int to = moveTo(move);
+        Unit captured = null;
+        switch (moveType(move)) {
+            case MOV:
+                shift(moveFrom(move), to);
+                break;
+            case ATK:
+                captured = remove(to);
+                bury(captured);
+                shift(moveFrom(move), to);
+                break;
+            case REC:
+                UnitType unitType = moveUnitType(move);
+                exhume(sideToMove, unitType);
+                place(DEAD_UNITS[sideToMove][unitType.ordinal()][0], to);
+                break;
+        }
+        record(move, captured);
+    }
+
+    /**
+     * Pass the turn to the other player without moving, undone by undoMove like any other move. This is not a legal
+     * move, the search uses it to check whether a position is good enough that even a free move for the opponent
+     * would not save them
+     */
+    public void makeNullMove() {
+        record(NO_MOVE, null);
+    }
+
+    /**
+     * Build the Move object for an encoded move, using the units on this board. The unit of a recruitment is a
+     * stand-in for any dead unit of its type, see Board.getGraveyard
+     *
+     * @param move an encoded move that is valid for the current position
+     * @return the decoded move
+     */
+    public Move decode(int move) {
+        Position finalPos = Init.cellPositions.get(moveTo(move));
+        if (moveType(move) == MoveType.REC) {
+            Unit recruit = DEAD_UNITS[sideToMove][moveUnitType(move).ordinal()][0];
+            return new Move(recruit, null, null, finalPos, MoveType.REC);
+        }
+        int from = moveFrom(move);
+        return new Move(Unit.fromCode(unitCodes[from]), Init.cellPositions.get(from),
+                Unit.fromCode(unitCodes[moveTo(move)]), finalPos, moveType(move));
+    }
+
+    /**
+     * Recruits the unit to the given position if a unit of its type is in the graveyard and the position is empty
+     *
+     * @param unit     the unit to recruit
+     * @param position the position to put the recruit at
+     * @return true if the unit was recruited, false otherwise
+     */
+    @Override
+    public boolean set(Unit unit, Position position) {
+        int cell = Init.cellIndex(position);
+        if (cell >= 0 && cells[cell] == EMPTY && deadCounts[side(unit.color)][unit.unitType.ordinal()] > 0) {
+            makeMove(new Move(unit, null, null, position, MoveType.REC));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void undoMove() {
+        if (ply == 0) {
+            return;
+        }
+        int lastMove = history[--ply];
+        passTurn();
+        if (lastMove == NO_MOVE) {
+            // the turn was passed without moving
+            return;
+        }
+        int to = moveTo(lastMove);
+        switch (moveType(lastMove)) {
+            case MOV:
+                shift(to, moveFrom(lastMove));
+                break;
+            case ATK:
+                shift(to, moveFrom(lastMove));
+                Unit defender = Unit.fromCode(capturedCodes[ply]);
+                exhume(side(defender.color), defender.unitType);
+                place(defender, to);
+                break;
+            case REC:
+                bury(remove(to));
+                break;
+        }
+    }
+
+    @Override
+    public int numActiveUnits(Color player) {
+        return numPieces[side(player)];
+    }
+
+    /**
+     * Gets a live view of the player's active units, the view changes as moves are made and undone
+     *
+     * @param player the player's color
+     * @return the set of all the units that the player has on the board
+     */
+    @Override
+    public Set<Unit> getActiveUnits(Color player) {
+        return player == Color.BLACK ? blackActive : whiteActive;
+    }
+
+    @Override
+    public boolean hasKing(Color player) {
+        return numKings[side(player)] > 0;
+    }
+
+    /**
+     * Gets a live view of the player's graveyard, the view changes as moves are made and undone. The units of the view
+     * are stand-ins for the dead units, one for each dead unit of each type, and the view contains any unit of the
+     * player whose type is in the graveyard
+     *
+     * @param player the player's color
+     * @return the set of stand-ins for the units in the player's graveyard
+     */
+    @Override
+    public Set<Unit> getGraveyard(Color player) {
+        return player == Color.BLACK ? blackDead : whiteDead;
+    }
+
+    /**
+     * Get the number of cities that the given player currently holds
+     *
+     * @param player the color of the player to check
+     * @return the number of cities that the player has a unit on, the unit must be an "officer" or non-pawn unit
+     */
+    @Override
+    public int numCitiesHeld(Color player) {
+        return citiesHeld[side(player)];
+    }
+
+    @Override
+    public ObservableMap<Position, Unit> getBoard() {
+        return null;
+    }
+
+    @Override
+    public Unit[][] getArrayBoard() {
+        Unit[][] board = new Unit[11][11];
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Position pos = Init.cellPositions.get(cell);
+            board[pos.x() + 5][pos.y() + 5] = Unit.fromCode(unitCodes[cell]);
+        }
+        return board;
+    }
+
+    private void record(int move, Unit captured) {
+        if (ply == history.length) {
+            history = Arrays.copyOf(history, ply * 2);
+            capturedCodes = Arrays.copyOf(capturedCodes, ply * 2);
+        }
+        capturedCodes[ply] = captured == null ? 0 : captured.code;
+        history[ply++] = move;
+        passTurn();
+    }
+
+    private void passTurn() {
+        sideToMove ^= 1;
+        hash ^= Zobrist.side();
+    }
+
+    // put the unit on the empty cell and add it to its player's piece list
+    private void place(Unit unit, int cell) {
+        int side = side(unit.color);
+        cells[cell] = pieceCode(unit.unitType, unit.color);
+        hash ^= Zobrist.piece(cells[cell], cell);
+        unitCodes[cell] = unit.code;
+        pieceSlot[cell] = (byte) numPieces[side];
+        pieceCells[side][numPieces[side]++] = (byte) cell;
+        if (unit.unitType == UnitType.KING) {
+            numKings[side] += 1;
+        }
+        material[side] += ScoreFuncFactory.materialValue(unit.unitType);
+        if (CITY_CELLS[cell] && unit.unitType != UnitType.PAWN) {
+            citiesHeld[side] += 1;
+        }
+    }
+
+    // take the unit off of the cell and out of its player's piece list
+    private Unit remove(int cell) {
+        Unit unit = Unit.fromCode(unitCodes[cell]);
+        int side = pieceSide(cells[cell]);
+        int last = pieceCells[side][--numPieces[side]];
+        pieceCells[side][pieceSlot[cell]] = (byte) last;
+        pieceSlot[last] = pieceSlot[cell];
+        hash ^= Zobrist.piece(cells[cell], cell);
+        cells[cell] = EMPTY;
+        unitCodes[cell] = 0;
+        if (unit.unitType == UnitType.KING) {
+            numKings[side] -= 1;
+        }
+        material[side] -= ScoreFuncFactory.materialValue(unit.unitType);
+        if (CITY_CELLS[cell] && unit.unitType != UnitType.PAWN) {
+            citiesHeld[side] -= 1;
+        }
+        return unit;
+    }
+
+    // move the unit between cells, the final cell must be empty
+    private void shift(int from, int to) {
+        int side = pieceSide(cells[from]);
+        hash ^= Zobrist.piece(cells[from], from) ^ Zobrist.piece(cells[from], to);
+        cells[to] = cells[from];
+        unitCodes[to] = unitCodes[from];
+        pieceSlot[to] = pieceSlot[from];
+        pieceCells[side][pieceSlot[to]] = (byte) to;
+        cells[from] = EMPTY;
+        unitCodes[from] = 0;
+        if (CITY_CELLS[from] != CITY_CELLS[to] && pieceType(cells[to]) != UnitType.PAWN) {
+            citiesHeld[side] += CITY_CELLS[to] ? 1 : -1;
+        }
+    }
+
+    // add the unit to the counts of its player's graveyard
+    private void bury(Unit unit) {
+        int side = side(unit.color);
+        numDead[side] += 1;
+        deadCounts[side][unit.unitType.ordinal()] += 1;
+        hash ^= Zobrist.dead(side, unit.unitType, deadCounts[side][unit.unitType.ordinal()]);
+    }
+
+    // take a unit of the type out of the counts of the player's graveyard
+    private void exhume(int side, UnitType unitType) {
+        hash ^= Zobrist.dead(side, unitType, deadCounts[side][unitType.ordinal()]);
+        deadCounts[side][unitType.ordinal()] -= 1;
+        numDead[side] -= 1;
+    }
+
+    /**
+     * Read-only set view over either the piece list or the graveyard of a player
+     */
+    private class UnitView extends AbstractSet<Unit> {
+        private final int side;
+        private final boolean dead;
+
+        UnitView(Color color, boolean dead) {
+            this.side = side(color);
+            this.dead = dead;
+        }
+
+        @Override
+        public Iterator<Unit> iterator() {
+            return new Iterator<Unit>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < size();
+                }
+
+                @Override
+                public Unit next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return dead ? deadUnit(i++) : Unit.fromCode(unitCodes[pieceCells[side][i++]]);
+                }
+
+                // the stand-in for the ith dead unit, the units are listed by type
+                private Unit deadUnit(int i) {
+                    for (int type = 0; ; type++) {
+                        if (i < deadCounts[side][type]) {
+                            return DEAD_UNITS[side][type][i];
+                        }
+                        i -= deadCounts[side][type];
+                    }
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return dead ? numDead[side] : numPieces[side];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Unit)) {
+                return false;
+            }
+            Unit unit = (Unit) o;
+            if (dead) {
+                return unit.color != null && side(unit.color) == side
+                        && deadCounts[side][unit.unitType.ordinal()] > 0;
+            }
+            for (int i = 0; i < numPieces[side]; i++) {
+                if (unitCodes[pieceCells[side][i]] == unit.code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.Move;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the leaf nodes of the game tree to a fixed depth (perft), used to check that move generation is correct
+ * after the board representation changes and to measure how fast it is. <p/>
+ * A position that has been won has no moves, like a checkmate in chess, so it only counts as a leaf at depth 0.
+ * Recruitments are counted once for each type of unit, as the MoveGenerator generates them. <p/>
+ * Run headless from the command line:
+ * <pre>
+ *     java com.tiberiuslabs.BattleChess.AI.Perft [-depth N] [-divide] [-check] [position...]
+ * </pre>
+ * where each position is "start" or the name of one of the stored positions, all of them by default. -divide prints
+ * the count for each move of the root, -check also counts the tree with Rules.getValidMoves and
+ * Rules.getValidRecruitments and compares both counts with the known count of the position, exiting with status 1 if
+ * any of them differ.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.MoveGenerator
+ */
+public final class Perft {
+    // the letter of each type of recruit, by ordinal, as in Unit.getTypeString so that a knight (N) is not a king (K)
+    private static final String TYPE_LETTERS = "PNRBQK";
+
+    /**
+     * the stored positions, each a name and the moves that reach it from the initial position, in the notation of
+     * notation(int)
+     */
+    private static final Map<String, String> POSITIONS = new LinkedHashMap<String, String>() {
+        {
+            put("start", "");
+            put("opening", "-1,5>-1,4 -2,-3>-4,0 -2,3>-2,1 -4,0x-2,1 -1,4x3,-4 2,-5>0,-2");
+            put("middlegame", "-2,3>-2,2 0,-4>2,-2 3,2>2,2 -2,-3>1,-4 -2,5>-4,4 3,-4>3,-3 0,5>-2,3 2,-5>-1,-3 "
+                    + "-2,3x0,-1 1,-2x0,-1 2,2>1,2 0,-3x4,1 0,3x4,1 2,-2>1,0 3,1>3,0 1,0x2,1 4,1>-2,4 "
+                    + "2,1x-4,4 1,4>1,3 3,-5>0,-2 3,0>3,-1 -4,4x-3,5 -1,5>-2,5 -3,5x1,3");
+            put("recruitment", "-1,5>-4,2 2,-5>3,-3 3,1>3,-1 0,-4x3,-1 -4,2x-4,-1 -3,-2x-4,-1 0,4>1,2 "
+                    + "-4,-1x-4,5 -3,5x-4,5 1,-5>1,-3 1,1>1,0 -2,-3>0,-2 3,2x3,-1 0,-2x1,0 1,2>5,0 "
+                    + "0,-5>1,-4 -4,5>-4,2 1,0x0,3 -4,2>-4,5 3,-3>2,0 3,-1x3,-4 0,3>3,1 4,1x3,1 "
+                    + "0,-3>1,-5 -1,2>-1,0 4,-5x3,-4 2,3>-1,4 1,-4x-1,0 -3,4>-3,3 1,-2>1,0 0,1x1,0 "
+                    + "1,-3>2,-5 -4,5>-5,5 -2,-1>-2,0");
+        }
+    };
+
+    /**
+     * the known leaf counts of the stored positions for depths 1 to 4
+     */
+    private static final Map<String, long[]> EXPECTED = new LinkedHashMap<String, long[]>() {
+        {
+            put("start", new long[]{51, 2588, 138196, 7337253});
+            put("opening", new long[]{73, 4707, 333599, 21852122});
+            put("middlegame", new long[]{40, 2178, 92262, 5083913});
+            put("recruitment", new long[]{93, 5572, 463657, 27985087});
+        }
+    };
+
+    private final int[] moves;
+
+    private Perft(int maxDepth) {
+        moves = new int[MoveGenerator.MAX_MOVES * (maxDepth + 1)];
+    }
+
+    /**
+     * Count the leaf nodes below the position with MoveGenerator
+     *
+     * @param board the position to count from, left unchanged
+     * @param depth the number of moves to look ahead
+     * @return the number of positions reached after exactly depth moves
+     */
+    public static long perft(PackedBoard board, int depth) {
+        return new Perft(depth).count(board, depth, 0);
+    }
+
+    /**
+     * Count the leaf nodes below the position with Rules.getValidMoves and Rules.getValidRecruitments, the reference
+     * that MoveGenerator is checked against
+     *
+     * @param board the position to count from, left unchanged
+     * @param depth the number of moves to look ahead
+     * @return the number of positions reached after exactly depth moves
+     */
+    public static long perftRules(PackedBoard board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (Move move : rulesMoves(board)) {
+            board.makeMove(move);
+            nodes += perftRules(board, depth - 1);
+            board.undoMove();
+        }
+        return nodes;
+    }
+
+    private long count(PackedBoard board, int depth, int start) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (Rules.winner(board) != Color.NEUTRAL) {
+            return 0;
+        }
+        int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, start);
+        if (depth == 1) {
+            return end - start;
+        }
+        long nodes = 0;
+        for (int i = start; i < end; i++) {
+            board.makeMove(moves[i]);
+            nodes += count(board, depth - 1, end);
+            board.undoMove();
+        }
+        return nodes;
+    }
+
+    // the moves allowed by Rules, with a single recruitment for each type of unit
+    private static List<Move> rulesMoves(PackedBoard board) {
+        List<Move> moves = new ArrayList<>();
+        if (Rules.winner(board) != Color.NEUTRAL) {
+            return moves;
+        }
+        Color player = board.sideToMove() == 1 ? Color.BLACK : Color.WHITE;
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Unit unit = board.unit(cell);
+            if (unit != null && unit.color == player) {
+                Position startPos = Init.cellPositions.get(cell);
+                for (Position finalPos : Rules.getValidMoves(unit, startPos, board)) {
+                    Unit defender = board.get(finalPos);
+                    MoveType moveType = defender == null ? MoveType.MOV : MoveType.ATK;
+                    moves.add(new Move(unit, startPos, defender, finalPos, moveType));
+                }
+            }
+        }
+        Set<UnitType> recruited = EnumSet.noneOf(UnitType.class);
+        for (Unit recruit : new ArrayList<>(board.getGraveyard(player))) {
+            if (recruited.add(recruit.unitType)) {
+                for (Position finalPos : Rules.getValidRecruitments(player, recruit, board)) {
+                    moves.add(new Move(recruit, null, null, finalPos, MoveType.REC));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Write an encoded move as text: "x,y>x,y" for a move, "x,yxx,y" for an attack and "T@x,y" for a recruitment,
+     * where T is the letter of the recruited unit type: P, N, R, B, Q or K. For example "0,1>0,-1", "2,1x2,-1" and
+     * "Q@1,-5"
+     *
+     * @param move the encoded move
+     * @return the text of the move
+     */
+    public static String notation(int move) {
+        Position to = Init.cellPositions.get(PackedBoard.moveTo(move));
+        if (PackedBoard.moveType(move) == MoveType.REC) {
+            return TYPE_LETTERS.charAt(PackedBoard.moveUnitType(move).ordinal()) + "@" + to.x() + "," + to.y();
+        }
+        Position from = Init.cellPositions.get(PackedBoard.moveFrom(move));
+        String separator = PackedBoard.moveType(move) == MoveType.ATK ? "x" : ">";
+        return from.x() + "," + from.y() + separator + to.x() + "," + to.y();
+    }
+
+    /**
+     * Find the move of the position that has the given text
+     *
+     * @param board the position to find the move in
+     * @param text  the text of the move, as written by notation(int)
+     * @return the encoded move
+     * @throws IllegalArgumentException if the position has no such move
+     */
+    public static int parse(PackedBoard board, String text) {
+        MoveType moveType;
+        int from = -1;
+        int to;
+        int unitType = -1;
+        int at = text.indexOf('@');
+        if (at >= 0) {
+            moveType = MoveType.REC;
+            unitType = at == 1 ? TYPE_LETTERS.indexOf(text.charAt(0)) : -1;
+            to = parseCell(text, at + 1, text.length());
+        } else {
+            // the separator of an attack is the x that follows the start cell
+            int separator = text.indexOf('>');
+            moveType = MoveType.MOV;
+            if (separator < 0) {
+                separator = text.indexOf('x');
+                moveType = MoveType.ATK;
+            }
+            from = parseCell(text, 0, separator);
+            to = parseCell(text, separator + 1, text.length());
+        }
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+        for (int i = 0; i < end; i++) {
+            int move = moves[i];
+            if (to >= 0 && PackedBoard.moveType(move) == moveType && PackedBoard.moveTo(move) == to
+                    && (moveType == MoveType.REC ? PackedBoard.moveUnitType(move).ordinal() == unitType
+                    : PackedBoard.moveFrom(move) == from)) {
+                return move;
+            }
+        }
+        throw new IllegalArgumentException("no move " + text + " in the position");
+    }
+
+    // the cell number of the "x,y" coordinates in text[begin, end), or -1 if they are not a cell
+    private static int parseCell(String text, int begin, int end) {
+        int comma = text.indexOf(',', begin);
+        if (begin < 0 || comma <= begin || comma >= end) {
+            return -1;
+        }
+        try {
+            return Position.of(Integer.parseInt(text.substring(begin, comma)),
+                    Integer.parseInt(text.substring(comma + 1, end))).cell();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Build one of the stored positions
+     *
+     * @param name the name of the position
+     * @return the position, with the player to move after the stored moves
+     * @throws IllegalArgumentException if there is no position with that name
+     */
+    public static PackedBoard position(String name) {
+        String line = POSITIONS.get(name);
+        if (line == null) {
+            throw new IllegalArgumentException("unknown position " + name + ", expected one of " + POSITIONS.keySet());
+        }
+        PackedBoard board = new PackedBoard();
+        for (String text : line.split(" ")) {
+            if (!text.isEmpty()) {
+                board.makeMove(parse(board, text));
+            }
+        }
+        return board;
+    }
+
+    public static void main(String[] args) {
+        int depth = 3;
+        boolean divide = false;
+        boolean check = false;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-divide":
+                    divide = true;
+                    break;
+                case "-check":
+                    check = true;
+                    break;
+                default:
+                    names.add(args[i]);
+                    break;
+            }
+        }
+        if (names.isEmpty()) {
+            names.addAll(POSITIONS.keySet());
+        }
+
+        boolean failed = false;
+        for (String name : names) {
+            failed |= !run(name, depth, divide, check);
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    // count one position, printing the results, and return false if the check failed
+    private static boolean run(String name, int depth, boolean divide, boolean check) {
+        PackedBoard board = position(name);
+        System.out.println(name + ", depth " + depth);
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide && depth > 0) {
+            nodes = 0;
+            int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+            int end = MoveGenerator.generateMoves(board, board.sideToMove(), rootMoves, 0);
+            rootMoves = Arrays.copyOf(rootMoves, end);
+            Arrays.sort(rootMoves);
+            for (int move : rootMoves) {
+                board.makeMove(move);
+                long moveNodes = perft(board, depth - 1);
+                board.undoMove();
+                System.out.println("  " + notation(move) + ": " + moveNodes);
+                nodes += moveNodes;
+            }
+        } else {
+            nodes = perft(board, depth);
+        }
+        long nanos = Math.max(System.nanoTime() - start, 1);
+        System.out.printf("  nodes %d, %.1f ms, %.0f nodes/sec%n", nodes, nanos / 1e6, nodes * 1e9 / nanos);
+
+        if (check) {
+            start = System.nanoTime();
+            long rulesNodes = perftRules(board, depth);
+            nanos = Math.max(System.nanoTime() - start, 1);
+            System.out.printf("  rules %d, %.1f ms, %.0f nodes/sec%n",
+                    rulesNodes, nanos / 1e6, rulesNodes * 1e9 / nanos);
+            long[] expected = EXPECTED.get(name);
+            if (rulesNodes != nodes || depth > 0 && depth <= expected.length && nodes != expected[depth - 1]) {
+                System.out.println("  MISMATCH");
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+/**
+ * The selective search techniques that the AI may use to skip or shorten the search of moves that are unlikely to
+ * change its choice. All of them are on by default, each can be turned off with AI.setPruning
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.AI#setPruning(java.util.Set)
+ */
+public enum Pruning {
+    /**
+     * let the opponent move twice in a row, searched less deeply, and skip the rest of the node if that still fails
+     * to help them. Not used when the opponent holds its own capitol, where a free move could take the other capitol
+     */
+    NULL_MOVE,
+    /**
+     * search the quiet moves that come late in the move ordering less deeply, and search them again at the full
+     * depth only if they turn out better than the moves before them
+     */
+    LATE_MOVE_REDUCTIONS,
+    /**
+     * skip the quiet moves in the last moves before the quiescence search when the board is scored so far below the
+     * bound that a single quiet move could not bring it back
+     */
+    FUTILITY
+}
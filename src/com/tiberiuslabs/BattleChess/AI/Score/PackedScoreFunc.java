@@ -0,0 +1,28 @@
+package com.tiberiuslabs.BattleChess.AI.Score;
+
+import com.tiberiuslabs.BattleChess.AI.PackedBoard;
+import com.tiberiuslabs.BattleChess.ChessEngine.Board;
+import com.tiberiuslabs.BattleChess.Types.Color;
+
+/**
+ * A score function that reads the packed representation of the board directly, so that it can use the evaluation
+ * terms that PackedBoard keeps up to date instead of walking the board at every leaf of the search. <p/>
+ * Any other Board is copied into a PackedBoard before it is scored.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.PackedBoard
+ */
+public interface PackedScoreFunc extends ScoreFunc {
+    /**
+     * Generate a score based on the state of the game that the AI will use to make a move/recruitment decision.
+     *
+     * @param board  the current game state
+     * @param player the current player to generate the score for
+     * @return returns an int value dependant on the score metric being measured
+     */
+    public int score(PackedBoard board, Color player);
+
+    @Override
+    default int score(Board board, Color player) {
+        return score(board instanceof PackedBoard ? (PackedBoard) board : new PackedBoard(board, player), player);
+    }
+}
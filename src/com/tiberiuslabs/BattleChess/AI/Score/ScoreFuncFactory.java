@@ -1,12 +1,11 @@
 package com.tiberiuslabs.BattleChess.AI.Score;
 
+import com.tiberiuslabs.BattleChess.AI.MoveGenerator;
+import com.tiberiuslabs.BattleChess.AI.PackedBoard;
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
 import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
 import com.tiberiuslabs.BattleChess.Types.Color;
-import com.tiberiuslabs.BattleChess.Types.Position;
-import com.tiberiuslabs.BattleChess.Types.Unit;
-
-import java.util.HashSet;
-import java.util.Set;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
 
 /**
  * Static generator class to build an array of ScoreFunc lambdas
@@ -32,91 +31,59 @@ public class ScoreFuncFactory {
         return scoreFuncs;
     }
 
-    private static ScoreFunc playerMaterialScore() {
-        return (board, player) -> {
-            int score = 0;
-            for (Unit unit : board.getActiveUnits(player)) {
-                switch (unit.unitType) {
-                    case PAWN:
-                        score += 200;
-                        break;
-                    case KNIGHT:
-                        score += 300;
-                        break;
-                    case ROOK:
-                        score += 500;
-                        break;
-                    case BISHOP:
-                        score += 500;
-                        break;
-                    case QUEEN:
-                        score += 900;
-                        break;
-                    case KING:
-                        score += 10000;
-                        break;
-                }
-            }
+    /**
+     * Get the material value of a unit, as counted by the material score functions
+     *
+     * @param unitType the type of the unit
+     * @return the value of the unit
+     */
+    public static int materialValue(UnitType unitType) {
+        switch (unitType) {
+            case PAWN:
+                return 200;
+            case KNIGHT:
+                return 300;
+            case ROOK:
+                return 500;
+            case BISHOP:
+                return 500;
+            case QUEEN:
+                return 900;
+            case KING:
+                return 10000;
+            default:
+                return 0;
+        }
+    }
 
-            return score - 500;
-        };
+    private static ScoreFunc playerMaterialScore() {
+        return (PackedScoreFunc) (board, player) -> board.material(PackedBoard.side(player)) - 500;
     }
 
     private static ScoreFunc opponentMaterialScore() {
-        return (board, player) -> {
-            int score = 0;
-            for (Unit unit : board.getActiveUnits(player == Color.BLACK ? Color.WHITE : Color.BLACK)) {
-                switch (unit.unitType) {
-                    case PAWN:
-                        score -= 200;
-                        break;
-                    case KNIGHT:
-                        score -= 300;
-                        break;
-                    case ROOK:
-                        score -= 500;
-                        break;
-                    case BISHOP:
-                        score -= 500;
-                        break;
-                    case QUEEN:
-                        score -= 900;
-                        break;
-                    case KING:
-                        score -= 10000;
-                        break;
-                }
-            }
-
-            return score;
-        };
+        return (PackedScoreFunc) (board, player) -> -board.material(1 - PackedBoard.side(player));
     }
 
     public static ScoreFunc playerMovementFreedom() {
-        return (board, player) -> {
-            Set<Position> validMoves = new HashSet<>();
-            for (Unit unit : board.getActiveUnits(player)) {
-                validMoves.addAll(Rules.getValidMoves(unit, unit.position, board));
-            }
-
-            return validMoves.size() > 50 ? 50 : validMoves.size();
+        return (PackedScoreFunc) (board, player) -> {
+            int numMoves = MoveGenerator.countTargets(board, PackedBoard.side(player));
+            return numMoves > 50 ? 50 : numMoves;
         };
     }
 
     public static ScoreFunc playerHoldsCapitol() {
-        return (board, player) -> {
-            Unit capitol = board.get(Rules.getCapitol(player));
-            return capitol != null && capitol.color == player ? 500 : 0;
-        };
+        return (PackedScoreFunc) (board, player) -> holdsCapitol(board, player) ? 500 : 0;
     }
 
     public static ScoreFunc opponentCanRecruit() {
-        return (board, player) -> {
+        return (PackedScoreFunc) (board, player) -> {
             Color opponent = player == Color.BLACK ? Color.WHITE : Color.BLACK;
-            Unit capitol = board.get(Rules.getCapitol(opponent));
-            int numCities = board.numCitiesHeld(opponent);
-
-            return capitol != null && capitol.color == opponent && numCities >= 3 ? -200 : 0;
+            return holdsCapitol(board, opponent) && board.numCitiesHeld(opponent) >= 3 ? -200 : 0;
         };
     }
+
+    private static boolean holdsCapitol(PackedBoard board, Color player) {
+        byte piece = board.piece(Init.cellIndex(Rules.getCapitol(player)));
+        return piece != PackedBoard.EMPTY && PackedBoard.pieceSide(piece) == PackedBoard.side(player);
+    }
 }
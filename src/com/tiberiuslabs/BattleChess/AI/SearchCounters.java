@@ -0,0 +1,50 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The counters kept by one Searcher during one search, plain fields so that counting costs no more than an increment.
+ * The counters of all of the searchers of a search are added together into its SearchInfo.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.SearchInfo
+ */
+final class SearchCounters {
+    /**
+     * the cutoffs caused by the moves at each index of the move ordering, the last slot counts every later index
+     */
+    static final int CUTOFF_SLOTS = 8;
+
+    long nodes;
+    long evaluations;
+    long tableProbes;
+    long tableHits;
+    int maxPly;
+    final long[] cutoffs = new long[CUTOFF_SLOTS];
+
+    // the depth, time in nanoseconds and nodes of each completed iteration
+    final List<long[]> iterations = new ArrayList<>();
+
+    void clear() {
+        nodes = 0;
+        evaluations = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        maxPly = 0;
+        for (int i = 0; i < CUTOFF_SLOTS; i++) {
+            cutoffs[i] = 0;
+        }
+        iterations.clear();
+    }
+
+    void add(SearchCounters other) {
+        nodes += other.nodes;
+        evaluations += other.evaluations;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        maxPly = Math.max(maxPly, other.maxPly);
+        for (int i = 0; i < CUTOFF_SLOTS; i++) {
+            cutoffs[i] += other.cutoffs[i];
+        }
+    }
+}
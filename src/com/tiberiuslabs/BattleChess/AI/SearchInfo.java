@@ -0,0 +1,146 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The statistics of one call to AI.getMove, added up over all of the threads that searched. <p/>
+ * The depth, the time of each iteration and the branching factor are those of the main search thread, the helper
+ * threads start their iterations at different depths.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.AI#getLastSearchInfo()
+ * @see com.tiberiuslabs.BattleChess.AI.SearchStatistics
+ */
+public final class SearchInfo {
+    private final int depth;
+    private final int maxPly;
+    private final long nodes;
+    private final long evaluations;
+    private final long tableProbes;
+    private final long tableHits;
+    private final long[] cutoffs;
+    private final long[] iterationMillis;
+    private final double branchingFactor;
+    private final long millis;
+
+    /**
+     * @param total      the counters of every thread of the search added together
+     * @param iterations the depth, time in nanoseconds and nodes of each iteration completed by the main thread
+     * @param nanos      the wall-clock time of the whole search
+     */
+    SearchInfo(SearchCounters total, List<long[]> iterations, long nanos) {
+        this.nodes = total.nodes;
+        this.evaluations = total.evaluations;
+        this.tableProbes = total.tableProbes;
+        this.tableHits = total.tableHits;
+        this.maxPly = total.maxPly;
+        this.cutoffs = total.cutoffs.clone();
+        this.millis = nanos / 1_000_000;
+
+        this.iterationMillis = new long[iterations.size()];
+        for (int i = 0; i < iterations.size(); i++) {
+            iterationMillis[i] = iterations.get(i)[1] / 1_000_000;
+        }
+        int last = iterations.size() - 1;
+        this.depth = last < 0 ? 0 : (int) iterations.get(last)[0];
+        // each iteration is one move deeper, so the ratio of the nodes of the last two is the effective branching factor
+        this.branchingFactor = last < 1 || iterations.get(last - 1)[2] == 0 ? 0
+                : (double) iterations.get(last)[2] / iterations.get(last - 1)[2];
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed by the main thread, in the depth units of the AI search
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the most moves from the root that any node of the search was reached at, including the quiescence search
+     */
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    /**
+     * @return the number of nodes searched, including the nodes of the quiescence search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of times that the score functions were evaluated
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the number of positions looked up in the transposition table
+     */
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /**
+     * @return the number of lookups that found the position in the transposition table
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * @return the fraction of lookups that found the position, 0 if there were none
+     */
+    public double getTableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * Get the number of beta cutoffs caused by the moves at each index of the move ordering, a good ordering causes
+     * most of them with its first move
+     *
+     * @return the counts for indices 0 to 6, and for all of the later indices in the last element
+     */
+    public long[] getCutoffs() {
+        return cutoffs.clone();
+    }
+
+    /**
+     * @return the wall-clock time in milliseconds of each iteration completed by the main thread
+     */
+    public long[] getIterationMillis() {
+        return iterationMillis.clone();
+    }
+
+    /**
+     * @return the ratio of the nodes of the last two iterations of the main thread, 0 if it completed fewer than two
+     */
+    public double getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * @return the wall-clock time of the whole search in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the nodes searched per second of wall-clock time, by all threads
+     */
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(millis, 1);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchInfo{depth=" + depth + ", maxPly=" + maxPly + ", nodes=" + nodes + ", evaluations=" + evaluations
+                + ", tableHitRate=" + String.format("%.3f", getTableHitRate()) + ", cutoffs=" + Arrays.toString(cutoffs)
+                + ", iterationMillis=" + Arrays.toString(iterationMillis)
+                + ", branchingFactor=" + String.format("%.2f", branchingFactor) + ", millis=" + millis
+                + ", nps=" + getNodesPerSecond() + '}';
+    }
+}
@@ -0,0 +1,155 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * The statistics of every search whose move was used by any AI in this JVM, published as an MBean named
+ * "com.tiberiuslabs.BattleChess:type=SearchStatistics" so that they can be watched with jconsole or any other JMX
+ * client while the game or a self-play run is going.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.SearchInfo
+ */
+public final class SearchStatistics implements SearchStatisticsMBean {
+    /**
+     * the name the statistics are registered under
+     */
+    public static final String OBJECT_NAME = "com.tiberiuslabs.BattleChess:type=SearchStatistics";
+
+    private static final SearchStatistics instance = new SearchStatistics();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            // the statistics are still kept, they are just not published
+        }
+    }
+
+    private long searches;
+    private long totalNodes;
+    private long totalMillis;
+    private SearchInfo last;
+
+    private SearchStatistics() {
+    }
+
+    /**
+     * Get the statistics shared by every AI
+     *
+     * @return the statistics
+     */
+    public static SearchStatistics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Add a finished search to the statistics, a pondering search is only added if its move is used
+     *
+     * @param info the statistics of the search
+     */
+    synchronized void record(SearchInfo info) {
+        searches++;
+        totalNodes += info.getNodes();
+        totalMillis += info.getMillis();
+        last = info;
+    }
+
+    /**
+     * Get the statistics of the most recent search
+     *
+     * @return the statistics, or null if there has not been a search since the last reset
+     */
+    public synchronized SearchInfo getLast() {
+        return last;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return totalNodes;
+    }
+
+    @Override
+    public synchronized long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Override
+    public synchronized long getAverageNodesPerSecond() {
+        return totalNodes * 1000 / Math.max(totalMillis, 1);
+    }
+
+    @Override
+    public int getLastDepth() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getDepth();
+    }
+
+    @Override
+    public int getLastMaxPly() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getMaxPly();
+    }
+
+    @Override
+    public long getLastNodes() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getNodes();
+    }
+
+    @Override
+    public long getLastEvaluations() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getEvaluations();
+    }
+
+    @Override
+    public long getLastMillis() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getMillis();
+    }
+
+    @Override
+    public long getLastNodesPerSecond() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getNodesPerSecond();
+    }
+
+    @Override
+    public double getLastTableHitRate() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getTableHitRate();
+    }
+
+    @Override
+    public double getLastBranchingFactor() {
+        SearchInfo info = getLast();
+        return info == null ? 0 : info.getBranchingFactor();
+    }
+
+    @Override
+    public long[] getLastCutoffsByMoveIndex() {
+        SearchInfo info = getLast();
+        return info == null ? new long[0] : info.getCutoffs();
+    }
+
+    @Override
+    public long[] getLastIterationMillis() {
+        SearchInfo info = getLast();
+        return info == null ? new long[0] : info.getIterationMillis();
+    }
+
+    @Override
+    public synchronized void reset() {
+        searches = 0;
+        totalNodes = 0;
+        totalMillis = 0;
+        last = null;
+    }
+}
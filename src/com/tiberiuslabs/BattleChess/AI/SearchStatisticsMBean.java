@@ -0,0 +1,83 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+/**
+ * The management interface of SearchStatistics, the attributes shown by JMX clients such as jconsole
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.SearchStatistics
+ */
+public interface SearchStatisticsMBean {
+    /**
+     * @return the number of searches since the statistics were last reset
+     */
+    public long getSearches();
+
+    /**
+     * @return the nodes searched by all of the searches
+     */
+    public long getTotalNodes();
+
+    /**
+     * @return the wall-clock time in milliseconds of all of the searches
+     */
+    public long getTotalMillis();
+
+    /**
+     * @return the nodes searched per second over all of the searches
+     */
+    public long getAverageNodesPerSecond();
+
+    /**
+     * @return the depth of the last search, in the depth units of the AI search
+     */
+    public int getLastDepth();
+
+    /**
+     * @return the most moves from the root reached by the last search
+     */
+    public int getLastMaxPly();
+
+    /**
+     * @return the nodes searched by the last search
+     */
+    public long getLastNodes();
+
+    /**
+     * @return the number of times the last search evaluated the score functions
+     */
+    public long getLastEvaluations();
+
+    /**
+     * @return the wall-clock time in milliseconds of the last search
+     */
+    public long getLastMillis();
+
+    /**
+     * @return the nodes searched per second by the last search
+     */
+    public long getLastNodesPerSecond();
+
+    /**
+     * @return the fraction of the transposition table lookups of the last search that were hits
+     */
+    public double getLastTableHitRate();
+
+    /**
+     * @return the effective branching factor of the last search
+     */
+    public double getLastBranchingFactor();
+
+    /**
+     * @return the beta cutoffs of the last search by the index of the move in the move ordering
+     */
+    public long[] getLastCutoffsByMoveIndex();
+
+    /**
+     * @return the wall-clock time in milliseconds of each iteration of the last search
+     */
+    public long[] getLastIterationMillis();
+
+    /**
+     * Clear the totals and forget the last search
+     */
+    public void reset();
+}
@@ -0,0 +1,615 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory;
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * One thread of the AI's search. <p/>
+ * Each searcher runs its own iterative deepening alpha/beta search on its own copy of the board, with its own killer
+ * moves and history scores. All of the searchers of an AI share the AI's transposition table, so a thread that
+ * reaches a position another thread has already searched uses that result instead of searching it again (Lazy SMP).
+ * The searchers of one call to AI.getMove also share a Control that collects the deepest completed result and tells
+ * every thread when to stop. <p/>
+ * Moves are generated as encoded ints into a single array used as a stack, each node using the part of the array
+ * above its parent's moves, so the search does not allocate once the array has grown to the depth of the tree. <p/>
+ * Positions with few enough units left are not searched at all if the endgame tablebases are installed, their exact
+ * result is looked up instead. <p/>
+ * The search is selective unless the AI turns it off: null-move pruning, late move reductions and futility pruning
+ * each cut down the search of moves that are unlikely to change the result, see Pruning.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.MoveGenerator
+ * @see com.tiberiuslabs.BattleChess.AI.Tablebases
+ * @see com.tiberiuslabs.BattleChess.AI.Pruning
+ */
+class Searcher {
+    // the number of nodes searched between checks of the clock
+    private static final int CLOCK_INTERVAL = 1024;
+    // how much an attack may gain beyond the value of its victim before the quiescence search skips it
+    private static final int DELTA_MARGIN = 200;
+
+    // how much shallower the null move is searched than a real move, and the least depth it is tried at
+    private static final int NULL_MOVE_REDUCTION = 2 * AI.DEPTH_STEP;
+    private static final int NULL_MOVE_MIN_DEPTH = 3 * AI.DEPTH_STEP;
+    // with this few units left a free move could well be worth more than any real move, so none is given
+    private static final int NULL_MOVE_MIN_UNITS = 4;
+
+    // the moves before this index in the ordering are never reduced, nor are the moves of nodes shallower than the
+    // least depth
+    private static final int LMR_FIRST_INDEX = 3;
+    private static final int LMR_MIN_DEPTH = 3 * AI.DEPTH_STEP;
+    private static final int LMR_REDUCTION = AI.DEPTH_STEP;
+
+    // the most a quiet move may gain for each move left before the quiescence search, about a minor piece
+    private static final int FUTILITY_MARGIN = 300;
+    private static final int FUTILITY_MAX_DEPTH = 2 * AI.DEPTH_STEP;
+
+    // the capitol of each player
+    private static final int[] CAPITOLS = {
+            Init.cellIndex(Rules.getCapitol(Color.WHITE)), Init.cellIndex(Rules.getCapitol(Color.BLACK))};
+
+    // shared by every searcher, the tables are read-only
+    private static final Tablebases tablebases = Tablebases.loadDefault();
+
+    private final AI ai;
+    private final TranspositionTable table;
+    private final MoveOrderer orderer = new MoveOrderer();
+
+    // the moves of every node on the current path, and the index above the moves of the deepest node
+    private int[] moveStack = new int[MoveGenerator.MAX_MOVES * 8];
+    private int stackTop;
+
+    private Control control;
+    private Color color;
+    private boolean nullMove;
+    private boolean lateMoveReductions;
+    private boolean futility;
+    private final SearchCounters counters = new SearchCounters();
+
+    /**
+     * @param ai    the AI that this searcher evaluates positions for
+     * @param table the transposition table shared by all of the AI's searchers
+     */
+    Searcher(AI ai, TranspositionTable table) {
+        this.ai = ai;
+        this.table = table;
+    }
+
+    /**
+     * Forget the move ordering history of earlier searches
+     */
+    void clear() {
+        orderer.clear();
+    }
+
+    /**
+     * Search the root position with iterative deepening until maxDepth is reached or the control is stopped,
+     * reporting each completed iteration to the control
+     *
+     * @param board      this searcher's copy of the root position, the AI must be the side to move
+     * @param moves      this searcher's copy of the encoded root moves, reordered as the search goes
+     * @param control    the state shared with the other searchers of this move
+     * @param firstDepth the depth of the first iteration, helper threads start deeper than the main thread
+     * @param maxDepth   the depth of the last iteration
+     */
+    void search(PackedBoard board, int[] moves, Control control, int firstDepth, int maxDepth) {
+        this.control = control;
+        this.color = ai.getColor();
+        this.stackTop = 0;
+        Set<Pruning> pruning = ai.getPruning();
+        this.nullMove = pruning.contains(Pruning.NULL_MOVE);
+        this.lateMoveReductions = pruning.contains(Pruning.LATE_MOVE_REDUCTIONS);
+        this.futility = pruning.contains(Pruning.FUTILITY);
+        counters.clear();
+
+        orderer.newSearch();
+        orderer.order(moves, 0, moves.length, PackedBoard.NO_MOVE, 0, board.sideToMove());
+
+        for (int depth = firstDepth; depth <= maxDepth && !control.stopped; depth += AI.DEPTH_STEP) {
+            long iterationStart = System.nanoTime();
+            long iterationNodes = counters.nodes;
+            int alpha = Integer.MIN_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < moves.length; i += 1) {
+                int move = moves[i];
+                board.makeMove(move);
+                int score = alphabeta(board, depth - AI.DEPTH_STEP, 1, alpha, Integer.MAX_VALUE, false, true);
+                board.undoMove();
+                if (control.stopped) {
+                    break;
+                }
+                if (bestIndex < 0 || score > alpha) {
+                    alpha = score;
+                    bestIndex = i;
+                }
+            }
+
+            if (!control.stopped) {
+                // search the best move first in the next iteration
+                int maxMove = moves[bestIndex];
+                moves[bestIndex] = moves[0];
+                moves[0] = maxMove;
+                counters.iterations.add(new long[]{
+                        depth, System.nanoTime() - iterationStart, counters.nodes - iterationNodes});
+                control.report(depth, maxMove, alpha);
+            }
+        }
+    }
+
+    /**
+     * Implementation of alpha/beta pruning min/max function for determining the optimal move. <p/>
+     * Results are stored in the transposition table, so a position that is reached again through a different order of
+     * moves, or by another thread, is only searched once for each depth. The moves of each node are searched in the
+     * order given by the MoveOrderer, starting with the best move stored for the position. <p/>
+     * Before any moves are searched, the side to move may pass (null-move pruning): if the side passing still gets a
+     * cutoff from a shallower search, a real move would get one too. Quiet moves late in the ordering are first
+     * searched shallower with a null window (late move reductions), and searched again in full only if they beat the
+     * moves before them. Close to the quiescence search, quiet moves are skipped when the board is scored too far
+     * below the bound for a single quiet move to bring it back (futility pruning).
+     *
+     * @param board     the copy of the current game state
+     * @param depth     the distance from the max depth to check
+     * @param ply       the number of moves made since the root of the search
+     * @param alpha     the current alpha value
+     * @param beta      the current beta value
+     * @param maxPlayer the boolean to determine if this level is a max or min level
+     * @param nullMove  false if the last move was a null move, the side to move may not pass again
+     * @return the max or min value of the children, depending on maxPlayer
+     * @see <a href="https://en.wikipedia.org/wiki/Alpha%E2%80%93beta_pruning">Wikipedia article on alpha/beta pruning</a>
+     * @see <a href="https://www.chessprogramming.org/Null_Move_Pruning">Chess Programming Wiki on null-move pruning</a>
+     */
+    private int alphabeta(PackedBoard board, int depth, int ply, int alpha, int beta, boolean maxPlayer,
+                          boolean nullMove) {
+        if (++counters.nodes % CLOCK_INTERVAL == 0) {
+            control.checkClock();
+        }
+        if (control.stopped) {
+            // the result will be thrown away, unwind as quickly as possible
+            return 0;
+        }
+        counters.maxPly = max(counters.maxPly, ply);
+
+        Color winner = Rules.winner(board);
+        if (winner != Color.NEUTRAL) {
+            // check if we have reached a win state
+            // return the max possible value if the AI player has won, min otherwise
+            return winner == this.color ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        }
+        int tablebaseValue = tablebases == null ? Tablebases.UNKNOWN : tablebases.probe(board);
+        if (tablebaseValue != Tablebases.UNKNOWN) {
+            // few enough units are left that the result is known exactly
+            return tablebaseScore(tablebaseValue, maxPlayer);
+        } else if (depth <= 0) {
+            // settle any pending exchanges before scoring the board state at the max depth
+            return quiesce(board, ply, alpha, beta, maxPlayer);
+        }
+
+        // use the stored result if this position has already been searched at least as deep as we need
+        long hash = board.hash();
+        long entry = table.probe(hash);
+        int bestMove = TranspositionTable.move(entry);
+        counters.tableProbes++;
+        if (entry != 0) {
+            counters.tableHits++;
+        }
+        if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    if (score >= beta) {
+                        return score;
+                    }
+                    break;
+                case TranspositionTable.UPPER:
+                    if (score <= alpha) {
+                        return score;
+                    }
+                    break;
+            }
+        }
+
+        // the max player is the AI, the min player is the AI's opponent, and is always the side to move
+        int side = board.sideToMove();
+        if (nullMove && this.nullMove && depth >= NULL_MOVE_MIN_DEPTH && canPass(board, side)) {
+            // pass, and search the reply with a null window just past the bound that would cut this node off
+            board.makeNullMove();
+            int reduced = depth - AI.DEPTH_STEP - NULL_MOVE_REDUCTION;
+            int score = maxPlayer
+                    ? alphabeta(board, reduced, ply + 1, beta - 1, beta, false, false)
+                    : alphabeta(board, reduced, ply + 1, alpha, alpha + 1, true, false);
+            board.undoMove();
+            if (control.stopped) {
+                return 0;
+            }
+            if (maxPlayer ? score >= beta : score <= alpha) {
+                // a win found after passing may not be there with a real move, so only the bound is returned
+                return maxPlayer ? beta : alpha;
+            }
+        }
+
+        boolean futile = false;
+        if (futility && depth <= FUTILITY_MAX_DEPTH) {
+            int margin = FUTILITY_MARGIN * ((depth + AI.DEPTH_STEP - 1) / AI.DEPTH_STEP);
+            int standPat = ai.getScore(board);
+            counters.evaluations++;
+            futile = maxPlayer ? standPat + margin <= alpha : standPat - margin >= beta;
+        }
+
+        int start = stackTop;
+        ensureStack(start);
+        int end = MoveGenerator.generateMoves(board, side, moveStack, start);
+        stackTop = end;
+        orderer.order(moveStack, start, end, bestMove, ply, side);
+
+        int alphaOrig = alpha;
+        int betaOrig = beta;
+        for (int i = start; i < end; i++) {
+            // read from the field, a child node may have grown the stack
+            int move = moveStack[i];
+            boolean quiet = isQuiet(move);
+            if (futile && quiet) {
+                // the move cannot bring the score back up to the bound before the quiescence search scores it
+                continue;
+            }
+            // change the board state to reflect the current recruitment or move
+            board.makeMove(move);
+            // get the value of the child node, attacks are resolved by the quiescence search so every move costs the same
+            int score;
+            if (lateMoveReductions && quiet && i - start >= LMR_FIRST_INDEX && depth >= LMR_MIN_DEPTH) {
+                // a late quiet move only needs to be searched in full if it beats the moves before it
+                int reduced = depth - AI.DEPTH_STEP - LMR_REDUCTION;
+                score = maxPlayer
+                        ? alphabeta(board, reduced, ply + 1, alpha, alpha + 1, false, true)
+                        : alphabeta(board, reduced, ply + 1, beta - 1, beta, true, true);
+                if (maxPlayer ? score > alpha : score < beta) {
+                    score = alphabeta(board, depth - AI.DEPTH_STEP, ply + 1, alpha, beta, !maxPlayer, true);
+                }
+            } else {
+                score = alphabeta(board, depth - AI.DEPTH_STEP, ply + 1, alpha, beta, !maxPlayer, true);
+            }
+            // undo the current recruitment or move in preparation for the next sibling or for
+            // returning to the parent board state
+            board.undoMove();
+            if (control.stopped) {
+                stackTop = start;
+                return 0;
+            }
+
+            if (maxPlayer && score > alpha) {
+                alpha = score;
+                bestMove = move;
+            } else if (!maxPlayer && score < beta) {
+                beta = score;
+                bestMove = move;
+            }
+
+            if (beta <= alpha) {
+                // we have hit the cutoff point, stop checking the siblings of this board state
+                orderer.cutoff(move, ply, depth, side);
+                counters.cutoffs[min(i - start, SearchCounters.CUTOFF_SLOTS - 1)]++;
+                break;
+            }
+        }
+        stackTop = start;
+
+        // the max player returns alpha, the min player returns beta, whether or not any nodes were pruned
+        int score = maxPlayer ? alpha : beta;
+        int bound = score <= alphaOrig ? TranspositionTable.UPPER :
+                score >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(hash, depth, bound, score, bestMove);
+        return score;
+    }
+
+    /**
+     * Quiescence search, only attacks are searched so that the board is not scored in the middle of an exchange. <p/>
+     * The side to move may always decline to attack, so the score of the board as it stands ("stand pat") bounds
+     * the node: it can cause a cutoff on its own, and an attack whose victim cannot lift the score back up to the
+     * bound is not searched at all (delta pruning). Recruitments are not searched, they are quiet moves.
+     *
+     * @param board     the copy of the current game state
+     * @param ply       the number of moves made since the root of the search
+     * @param alpha     the current alpha value
+     * @param beta      the current beta value
+     * @param maxPlayer the boolean to determine if this level is a max or min level
+     * @return the max or min value of the children and the stand pat score, depending on maxPlayer
+     * @see <a href="https://en.wikipedia.org/wiki/Quiescence_search">Wikipedia article on quiescence search</a>
+     */
+    private int quiesce(PackedBoard board, int ply, int alpha, int beta, boolean maxPlayer) {
+        if (++counters.nodes % CLOCK_INTERVAL == 0) {
+            control.checkClock();
+        }
+        if (control.stopped) {
+            return 0;
+        }
+        counters.maxPly = max(counters.maxPly, ply);
+
+        Color winner = Rules.winner(board);
+        if (winner != Color.NEUTRAL) {
+            return winner == this.color ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        }
+        int tablebaseValue = tablebases == null ? Tablebases.UNKNOWN : tablebases.probe(board);
+        if (tablebaseValue != Tablebases.UNKNOWN) {
+            return tablebaseScore(tablebaseValue, maxPlayer);
+        }
+
+        int standPat = ai.getScore(board);
+        counters.evaluations++;
+        if (maxPlayer) {
+            if (standPat >= beta) {
+                return beta;
+            }
+            alpha = max(alpha, standPat);
+        } else {
+            if (standPat <= alpha) {
+                return alpha;
+            }
+            beta = min(beta, standPat);
+        }
+        if (ply >= MoveOrderer.MAX_PLY) {
+            return maxPlayer ? alpha : beta;
+        }
+
+        int start = stackTop;
+        ensureStack(start);
+        int end = MoveGenerator.generateAttacks(board, board.sideToMove(), moveStack, start);
+        stackTop = end;
+        orderer.orderAttacks(moveStack, start, end);
+        for (int i = start; i < end; i++) {
+            int move = moveStack[i];
+            int victim = ScoreFuncFactory.materialValue(PackedBoard.pieceType(PackedBoard.moveCaptured(move)));
+            if (maxPlayer ? standPat + victim + DELTA_MARGIN <= alpha : standPat - victim - DELTA_MARGIN >= beta) {
+                // even winning the victim for free would not change the result
+                continue;
+            }
+
+            board.makeMove(move);
+            int score = quiesce(board, ply + 1, alpha, beta, !maxPlayer);
+            board.undoMove();
+            if (control.stopped) {
+                stackTop = start;
+                return 0;
+            }
+
+            if (maxPlayer) {
+                alpha = max(alpha, score);
+            } else {
+                beta = min(beta, score);
+            }
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        stackTop = start;
+
+        return maxPlayer ? alpha : beta;
+    }
+
+    /**
+     * Check whether the side to move can safely pass for null-move pruning. Passing is not safe with few units left,
+     * where a free move may be worth more than any real move, or when the opponent holds its own capitol, where a free
+     * move could take the other capitol and win
+     *
+     * @param board the current game state
+     * @param side  the side to move
+     * @return true if the side to move may pass
+     */
+    private static boolean canPass(PackedBoard board, int side) {
+        if (board.numPieces(side) < NULL_MOVE_MIN_UNITS) {
+            return false;
+        }
+        int opponent = side ^ 1;
+        byte capitol = board.piece(CAPITOLS[opponent]);
+        return capitol == PackedBoard.EMPTY || PackedBoard.pieceSide(capitol) != opponent;
+    }
+
+    // a move that neither attacks nor recruits nor takes a capitol, the moves that the selective search cuts short
+    private static boolean isQuiet(int move) {
+        int to = PackedBoard.moveTo(move);
+        return PackedBoard.moveType(move) == MoveType.MOV && to != CAPITOLS[0] && to != CAPITOLS[1];
+    }
+
+    /**
+     * Convert the value of a tablebase position into a score for the AI. A win scores just below an actual win, less
+     * the distance to it, so that the search makes progress towards the quickest win and away from the quickest loss
+     *
+     * @param value     the value from the tablebases, for the player to move
+     * @param maxPlayer true if the AI is the player to move
+     * @return the score of the position for the AI
+     */
+    private static int tablebaseScore(int value, boolean maxPlayer) {
+        if (value == 0) {
+            return 0;
+        }
+        boolean aiWins = Tablebases.isWin(value) == maxPlayer;
+        int distance = Tablebases.distance(value);
+        return aiWins ? Integer.MAX_VALUE - 1 - distance : Integer.MIN_VALUE + 1 + distance;
+    }
+
+    /**
+     * Get the counters of the last search, valid once search has returned
+     *
+     * @return the counters, reset by the next search
+     */
+    SearchCounters counters() {
+        return counters;
+    }
+
+    // make sure that a node starting at start has room for all of its moves
+    private void ensureStack(int start) {
+        if (moveStack.length - start < MoveGenerator.MAX_MOVES) {
+            moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+        }
+    }
+
+    /**
+     * The state shared by the searchers of one call to AI.getMove
+     */
+    static final class Control {
+        private final long timeBudget;
+        private volatile long start;
+        private volatile long deadline = Long.MAX_VALUE;
+        private volatile boolean stopped;
+        private volatile boolean pondering;
+        private Listener listener;
+        private volatile SearchInfo info;
+
+        private int bestDepth;
+        private int bestMove = PackedBoard.NO_MOVE;
+        private int bestScore;
+
+        /**
+         * @param timeBudget the wall-clock time in milliseconds for the search, Long.MAX_VALUE for no limit
+         * @param pondering  true if the search is pondering, the clock does not start until ponderHit is called
+         */
+        Control(long timeBudget, boolean pondering) {
+            this.start = System.currentTimeMillis();
+            this.timeBudget = timeBudget;
+            this.pondering = pondering;
+        }
+
+        /**
+         * Record a completed iteration, the deepest completed iteration of any searcher is the result of the search
+         *
+         * @param depth the depth of the iteration
+         * @param move  the encoded best root move found by the iteration
+         * @param score the score of the best move
+         */
+        void report(int depth, int move, int score) {
+            boolean improved;
+            Listener listener;
+            synchronized (this) {
+                improved = depth > bestDepth;
+                if (improved) {
+                    bestDepth = depth;
+                    bestMove = move;
+                    bestScore = score;
+                }
+                // read under the lock, so that an iteration is reported either here or by setListener
+                listener = this.listener;
+                if (deadline == Long.MAX_VALUE && timeBudget != Long.MAX_VALUE && !pondering) {
+                    // only start watching the clock once there is a move to fall back on
+                    deadline = start + timeBudget;
+                }
+                if (score == Integer.MAX_VALUE) {
+                    // the AI has found a forced win, there is no need to look any further
+                    stopped = true;
+                }
+            }
+
+            if (improved && listener != null) {
+                listener.improved(depth, move, score);
+            }
+        }
+
+        /**
+         * @return true if the search is pondering and ponderHit has not been called
+         */
+        boolean isPondering() {
+            return pondering;
+        }
+
+        /**
+         * Set the listener told about each iteration that completes deeper than any before. If an iteration has already
+         * been completed, as by a pondering search, the listener is told about the deepest one at once, on the calling
+         * thread
+         *
+         * @param listener the listener, or null for none
+         */
+        void setListener(Listener listener) {
+            int depth;
+            int move;
+            int score;
+            synchronized (this) {
+                this.listener = listener;
+                depth = bestDepth;
+                move = bestMove;
+                score = bestScore;
+            }
+            if (listener != null && move != PackedBoard.NO_MOVE) {
+                listener.improved(depth, move, score);
+            }
+        }
+
+        /**
+         * The move that a pondering search expected has been made, start the clock of the search from now
+         */
+        synchronized void ponderHit() {
+            pondering = false;
+            start = System.currentTimeMillis();
+            if (bestMove != PackedBoard.NO_MOVE && timeBudget != Long.MAX_VALUE) {
+                deadline = start + timeBudget;
+            }
+        }
+
+        /**
+         * Stop every searcher if the time budget has run out
+         */
+        void checkClock() {
+            if (System.currentTimeMillis() >= deadline) {
+                stopped = true;
+            }
+        }
+
+        /**
+         * Tell every searcher to stop, their unfinished iterations are thrown away
+         */
+        void stop() {
+            stopped = true;
+        }
+
+        /**
+         * @return true once the search has been stopped, by stop, the clock or a forced win
+         */
+        boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Get the best move of the deepest completed iteration
+         *
+         * @return the encoded best move found, or PackedBoard.NO_MOVE if no iteration was completed
+         */
+        synchronized int bestMove() {
+            return bestMove;
+        }
+
+        /**
+         * Keep the statistics of the finished search, until whoever uses its move records them
+         *
+         * @param info the statistics of the search
+         */
+        void setInfo(SearchInfo info) {
+            this.info = info;
+        }
+
+        /**
+         * @return the statistics of the search, or null if it has not finished
+         */
+        SearchInfo getInfo() {
+            return info;
+        }
+
+        /**
+         * Receives the result of each iteration that completes deeper than any before, on the searcher's thread
+         */
+        @FunctionalInterface
+        interface Listener {
+            /**
+             * @param depth the depth of the iteration
+             * @param move  the encoded best root move found by the iteration
+             * @param score the score of the best move
+             */
+            void improved(int depth, int move, int score);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.MoveTables;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates the endgame tablebases offline by retrograde analysis. Run from the command line:
+ * <pre>
+ *     java com.tiberiuslabs.BattleChess.AI.TablebaseGenerator [-units N] [-out directory] [table...]
+ * </pre>
+ * where each table is a file name without the extension, such as "PRvQ", all tables of at most -units units (3 by
+ * default, at most 4) by default. The tables that a table's captures lead to are generated first if they are missing
+ * or were written by an older version.
+ * <p/>
+ * Positions are solved in order of their distance to the end of the game. The positions that Rules.winner has already
+ * decided, and those where the player to move has no moves and so has lost, have distance 0. A position has distance
+ * d if it is a win with a move to a loss of distance d - 1, or if it is a loss and all of its moves lead to wins of at
+ * most distance d - 1. Captures lead to the smaller tables, which are already solved. Positions that are never
+ * decided this way are draws. <p/>
+ * The tables do not know which pawns have moved, so no pawn moves two tiles in them, even from a start cell. The
+ * positions where a pawn that has not moved could are left out when the tables are probed.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.Tablebases
+ */
+public final class TablebaseGenerator {
+    private static final int MAX_UNITS = 2 * Tablebases.MAX_SIDE_UNITS;
+    private static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+    private static final String LETTERS = "PNRBQK";
+
+    private static final int BLACK_CAPITOL = Init.cellIndex(Rules.getCapitol(Color.BLACK));
+    private static final int WHITE_CAPITOL = Init.cellIndex(Rules.getCapitol(Color.WHITE));
+
+    private final Path directory;
+    private final Tablebases tablebases;
+
+    // the table being generated: the unit type and player of each slot, the values, and the table each capture of
+    // a slot leads to, null if the capture leaves the player with no units
+    private int units;
+    private int numWhite;
+    private final int[] types = new int[MAX_UNITS];
+    private final int[] sides = new int[MAX_UNITS];
+    private final Tablebases.Table[] captureTables = new Tablebases.Table[MAX_UNITS];
+    private byte[] values;
+
+    // the position being evaluated, and the cells that one of its units can move to
+    private final int[] cells = new int[MAX_UNITS];
+    private final int[] targets = new int[Init.NUM_CELLS];
+
+    private TablebaseGenerator(Path directory) {
+        this.directory = directory;
+        this.tablebases = new Tablebases(directory);
+    }
+
+    /**
+     * Generate a table and any of the smaller tables it needs that are missing
+     */
+    private void generate(int[] whiteTypes, int[] blackTypes) throws IOException {
+        if (Tablebases.isCurrent(directory.resolve(Tablebases.fileName(whiteTypes, blackTypes)))) {
+            return;
+        }
+        if (whiteTypes.length > 1) {
+            for (int i = 0; i < whiteTypes.length; i++) {
+                generate(without(whiteTypes, i), blackTypes);
+            }
+        }
+        if (blackTypes.length > 1) {
+            for (int i = 0; i < blackTypes.length; i++) {
+                generate(whiteTypes, without(blackTypes, i));
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        units = whiteTypes.length + blackTypes.length;
+        numWhite = whiteTypes.length;
+        int maxCaptureDistance = 0;
+        for (int slot = 0; slot < units; slot++) {
+            boolean white = slot < numWhite;
+            types[slot] = white ? whiteTypes[slot] : blackTypes[slot - numWhite];
+            sides[slot] = white ? 0 : 1;
+            captureTables[slot] = null;
+            if (white && whiteTypes.length > 1) {
+                captureTables[slot] = tablebases.table(without(whiteTypes, slot), blackTypes);
+            } else if (!white && blackTypes.length > 1) {
+                captureTables[slot] = tablebases.table(whiteTypes, without(blackTypes, slot - numWhite));
+            }
+            if (captureTables[slot] != null) {
+                maxCaptureDistance = Math.max(maxCaptureDistance, captureTables[slot].maxDistance());
+            }
+        }
+
+        values = new byte[Tablebases.size(units)];
+        Arrays.fill(values, (byte) Tablebases.UNKNOWN);
+        for (int index = 0; index < values.length; index++) {
+            int side = decode(index);
+            if (side < 0) {
+                // two units on one cell, the position can never be reached
+                values[index] = 0;
+            } else {
+                int winner = winner();
+                if (winner >= 0) {
+                    values[index] = (byte) (winner == side ? 1 : -1);
+                } else if (!hasMoves(side)) {
+                    // a player who cannot move loses
+                    values[index] = -1;
+                }
+            }
+        }
+
+        int maxDistance = 0;
+        for (int distance = 1; distance <= MAX_DISTANCE; distance++) {
+            boolean changed = false;
+            for (int index = 0; index < values.length; index++) {
+                if (values[index] == Tablebases.UNKNOWN) {
+                    int value = solve(decode(index), distance);
+                    if (value != Tablebases.UNKNOWN) {
+                        values[index] = (byte) value;
+                        changed = true;
+                        if (value != 0) {
+                            maxDistance = distance;
+                        }
+                    }
+                }
+            }
+            // the captures may still lead to longer wins and losses
+            if (!changed && distance > maxCaptureDistance + 1) {
+                break;
+            }
+        }
+
+        int wins = 0;
+        int losses = 0;
+        for (int index = 0; index < values.length; index++) {
+            if (values[index] == Tablebases.UNKNOWN) {
+                values[index] = 0;
+            } else if (Tablebases.isWin(values[index])) {
+                wins++;
+            } else if (Tablebases.isLoss(values[index])) {
+                losses++;
+            }
+        }
+        Tablebases.write(directory, whiteTypes, blackTypes, values, maxDistance);
+        System.out.printf("%-10s %9d positions, %9d wins, %9d losses, longest %3d, %6d ms%n",
+                Tablebases.fileName(whiteTypes, blackTypes), values.length, wins, losses, maxDistance,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Find the value of the position in cells, if it is decided at the given distance
+     *
+     * @param side     the player to move
+     * @param distance the distance being solved, every position of a shorter distance has been solved
+     * @return the value of the position, or UNKNOWN if it is not decided at this distance
+     */
+    private int solve(int side, int distance) {
+        boolean lost = true;
+        for (int slot = 0; slot < units; slot++) {
+            if (sides[slot] != side) {
+                continue;
+            }
+            int from = cells[slot];
+            int count = targets(slot);
+            for (int t = 0; t < count; t++) {
+                int value = successor(slot, targets[t]);
+                cells[slot] = from;
+
+                // the value of the move for the player to move here, counting only the positions already solved
+                if (value == Tablebases.UNKNOWN || value != 0 && Tablebases.distance(value) >= distance) {
+                    lost = false;
+                } else if (Tablebases.isLoss(value)) {
+                    return Tablebases.distance(value) + 2;
+                } else if (!Tablebases.isWin(value)) {
+                    lost = false;
+                }
+            }
+        }
+        return lost ? -(distance + 1) : Tablebases.UNKNOWN;
+    }
+
+    // true if the player has a unit that can move in the position in cells
+    private boolean hasMoves(int side) {
+        for (int slot = 0; slot < units; slot++) {
+            if (sides[slot] == side && targets(slot) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the value of the position after moving the unit in a slot, for the player to move after the move. The slot's
+     * cell is left changed
+     */
+    private int successor(int slot, int to) {
+        int side = sides[slot];
+        int captured = occupant(to);
+        cells[slot] = to;
+        if (captured < 0) {
+            return values[index(1 - side, -1)];
+        }
+        Tablebases.Table table = captureTables[captured];
+        // a player whose last unit is captured has lost
+        return table == null ? -1 : table.value(index(1 - side, captured));
+    }
+
+    /**
+     * Write the cells the unit in a slot can move to into targets
+     *
+     * @return the number of cells written
+     */
+    private int targets(int slot) {
+        int side = sides[slot];
+        int from = cells[slot];
+        int count = 0;
+        switch (UnitType.values()[types[slot]]) {
+            case PAWN:
+                int front = MoveTables.pawnPush(side, from);
+                if (front >= 0 && occupant(front) < 0) {
+                    targets[count++] = front;
+                }
+                for (int to : MoveTables.pawnAttacks(side, from)) {
+                    if (isEnemy(side, to)) {
+                        targets[count++] = to;
+                    }
+                }
+                return count;
+            case ROOK:
+                return slide(side, from, 0, 6);
+            case BISHOP:
+                return slide(side, from, 6, 12);
+            case QUEEN:
+                return slide(side, from, 0, 12);
+            case KNIGHT:
+                return step(side, MoveTables.knightJumps(from));
+            default:
+                return step(side, MoveTables.kingSteps(from));
+        }
+    }
+
+    private int slide(int side, int from, int firstDir, int lastDir) {
+        int count = 0;
+        for (int dir = firstDir; dir < lastDir; dir++) {
+            for (int to : MoveTables.ray(from, dir)) {
+                if (occupant(to) < 0) {
+                    targets[count++] = to;
+                    continue;
+                }
+                if (isEnemy(side, to)) {
+                    targets[count++] = to;
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int step(int side, int[] steps) {
+        int count = 0;
+        for (int to : steps) {
+            if (occupant(to) < 0 || isEnemy(side, to)) {
+                targets[count++] = to;
+            }
+        }
+        return count;
+    }
+
+    // the slot of the unit on a cell, or -1 if it is empty
+    private int occupant(int cell) {
+        for (int slot = 0; slot < units; slot++) {
+            if (cells[slot] == cell) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isEnemy(int side, int cell) {
+        int slot = occupant(cell);
+        return slot >= 0 && sides[slot] != side;
+    }
+
+    // the player holding both capitols, or -1, each player always has a unit in these tables
+    private int winner() {
+        int black = occupant(BLACK_CAPITOL);
+        int white = occupant(WHITE_CAPITOL);
+        return black >= 0 && white >= 0 && sides[black] == sides[white] ? sides[black] : -1;
+    }
+
+    /**
+     * Fill cells from an index
+     *
+     * @return the player to move, or -1 if two units are on the same cell
+     */
+    private int decode(int index) {
+        for (int slot = units - 1; slot >= 0; slot--) {
+            cells[slot] = index % Init.NUM_CELLS;
+            index /= Init.NUM_CELLS;
+        }
+        for (int slot = 0; slot < units; slot++) {
+            for (int other = slot + 1; other < units; other++) {
+                if (cells[slot] == cells[other]) {
+                    return -1;
+                }
+            }
+        }
+        return index;
+    }
+
+    // the index of the position in cells, leaving out the slot skip
+    private int index(int side, int skip) {
+        int index = side;
+        for (int slot = 0; slot < units; slot++) {
+            if (slot != skip) {
+                index = index * Init.NUM_CELLS + cells[slot];
+            }
+        }
+        return index;
+    }
+
+    private static int[] without(int[] types, int i) {
+        int[] result = new int[types.length - 1];
+        System.arraycopy(types, 0, result, 0, i);
+        System.arraycopy(types, i + 1, result, i, types.length - i - 1);
+        return result;
+    }
+
+    // the unit types of one player from the letters of a table name, in ascending order
+    private static int[] parseTypes(String letters) {
+        int[] types = new int[letters.length()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = LETTERS.indexOf(letters.charAt(i));
+            if (types[i] < 0) {
+                throw new IllegalArgumentException("unknown unit type " + letters.charAt(i));
+            }
+        }
+        Arrays.sort(types);
+        return types;
+    }
+
+    // every sorted combination of count unit types
+    private static List<int[]> combinations(int count) {
+        List<int[]> result = new ArrayList<>();
+        int numTypes = UnitType.values().length;
+        for (int first = 0; first < numTypes; first++) {
+            if (count == 1) {
+                result.add(new int[]{first});
+            } else {
+                for (int second = first; second < numTypes; second++) {
+                    result.add(new int[]{first, second});
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxUnits = 3;
+        Path out = Paths.get(Tablebases.DEFAULT_DIRECTORY);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-units":
+                    maxUnits = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    names.add(args[i]);
+                    break;
+            }
+        }
+        if (maxUnits > MAX_UNITS) {
+            throw new IllegalArgumentException("at most " + MAX_UNITS + " units, recruitment is not in the tables");
+        }
+
+        Files.createDirectories(out);
+        TablebaseGenerator generator = new TablebaseGenerator(out);
+        if (!names.isEmpty()) {
+            for (String name : names) {
+                String[] players = name.split("v");
+                if (players.length != 2 || players[0].isEmpty() || players[1].isEmpty()
+                        || players[0].length() > Tablebases.MAX_SIDE_UNITS
+                        || players[1].length() > Tablebases.MAX_SIDE_UNITS) {
+                    throw new IllegalArgumentException("expected a table name such as PRvQ, not " + name);
+                }
+                generator.generate(parseTypes(players[0]), parseTypes(players[1]));
+            }
+            return;
+        }
+
+        for (int total = 2; total <= maxUnits; total++) {
+            for (int white = 1; white <= Tablebases.MAX_SIDE_UNITS; white++) {
+                int black = total - white;
+                if (black < 1 || black > Tablebases.MAX_SIDE_UNITS) {
+                    continue;
+                }
+                for (int[] whiteTypes : combinations(white)) {
+                    for (int[] blackTypes : combinations(black)) {
+                        generator.generate(whiteTypes, blackTypes);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.MoveTables;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Endgame tablebases: the exact result of every position with at most two units on each side, read from files
+ * written by the TablebaseGenerator. Each file holds one combination of unit types, and is memory mapped the first
+ * time a position with those units is probed, so a probe is a single read from the mapped file. <p/>
+ * A player needs three cities to recruit, and so at least three units, so recruitment is impossible in these endings
+ * and the graveyards are not part of the tables. Nor is whether a pawn has moved: no pawn of the tables can move two
+ * tiles, so positions where a pawn is still on the start cell it started the game on are not probed. <p/>
+ * The value of a position is from the point of view of the player to move: 0 is a draw, d + 1 is a win and -(d + 1)
+ * a loss, where d is the number of moves until the game is decided with best play from both sides. The game is
+ * decided when Rules.winner has a winner, or when the player to move cannot move and loses, as in GameEngine and
+ * StrategyMatch. <p/>
+ * A file is a 16 byte header, the magic number, the version, the unit type of each of the four slots (-1 if unused),
+ * the number of white and black units and the longest distance in the table, followed by one byte for each position.
+ * The units fill the slots white first, each player's units in order of UnitType, and the position with black to move
+ * and the units on cells c0..cn is at index ((1 * 91 + c0) * 91 + c1) ... * 91 + cn.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.TablebaseGenerator
+ * @see <a href="https://en.wikipedia.org/wiki/Endgame_tablebase">Wikipedia article on endgame tablebases</a>
+ */
+public final class Tablebases {
+    /**
+     * the system property naming the directory of the tablebase files
+     */
+    public static final String DIRECTORY_PROPERTY = "battlechess.tablebases";
+    /**
+     * the directory of the tablebase files when the property is not set
+     */
+    public static final String DEFAULT_DIRECTORY = "tablebases";
+    /**
+     * the most units that each player may have in a tablebase position
+     */
+    public static final int MAX_SIDE_UNITS = 2;
+    /**
+     * the result of a probe of a position that is not in the tablebases
+     */
+    public static final int UNKNOWN = Byte.MIN_VALUE;
+
+    private static final int MAGIC = 0x42435442;  // "BCTB"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final String LETTERS = "PNRBQK";
+    private static final int NUM_TYPES = UnitType.values().length;
+
+    // each player's unit types as two digits, 0 for no unit and the type's ordinal + 1 otherwise
+    private static final int NUM_KEYS = (NUM_TYPES + 1) * (NUM_TYPES + 1) * (NUM_TYPES + 1) * (NUM_TYPES + 1);
+
+    // the table for a key that has no file
+    private static final Table MISSING = new Table(null, 0);
+
+    private final Path directory;
+    private final AtomicReferenceArray<Table> tables = new AtomicReferenceArray<>(NUM_KEYS);
+
+    /**
+     * The data of a single tablebase file
+     */
+    static final class Table {
+        private final ByteBuffer data;
+        private final int maxDistance;
+
+        private Table(ByteBuffer data, int maxDistance) {
+            this.data = data;
+            this.maxDistance = maxDistance;
+        }
+
+        /**
+         * @param index the index of the position
+         * @return the value of the position
+         */
+        int value(int index) {
+            return data.get(HEADER_SIZE + index);
+        }
+
+        /**
+         * @return the longest distance to the end of the game of any position in the table
+         */
+        int maxDistance() {
+            return maxDistance;
+        }
+    }
+
+    /**
+     * Use the tablebase files in a directory, files are only opened when they are first needed
+     *
+     * @param directory the directory holding the files
+     */
+    public Tablebases(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Use the tablebase files in the directory named by the battlechess.tablebases system property, or in the
+     * tablebases directory of the working directory if it is not set
+     *
+     * @return the tablebases, or null if the directory does not exist
+     */
+    public static Tablebases loadDefault() {
+        Path directory = Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+        return Files.isDirectory(directory) ? new Tablebases(directory) : null;
+    }
+
+    /**
+     * Look up the result of a position
+     *
+     * @param board the current game state
+     * @return the value of the position for the player to move, or UNKNOWN if the position is not in the tablebases
+     */
+    public int probe(PackedBoard board) {
+        int key = 0;
+        int index = board.sideToMove();
+        for (int side = 0; side < 2; side++) {
+            int count = board.numPieces(side);
+            if (count == 0 || count > MAX_SIDE_UNITS) {
+                return UNKNOWN;
+            }
+            int first = board.pieceCell(side, 0);
+            int second = count > 1 ? board.pieceCell(side, 1) : -1;
+            if (count > 1 && type(board, second) < type(board, first)) {
+                int cell = first;
+                first = second;
+                second = cell;
+            }
+            if (canJump(board, side, first) || count > 1 && canJump(board, side, second)) {
+                return UNKNOWN;
+            }
+
+            key = key * (NUM_TYPES + 1) * (NUM_TYPES + 1)
+                    + (type(board, first) + 1) * (NUM_TYPES + 1) + (count > 1 ? type(board, second) + 1 : 0);
+            index = index * Init.NUM_CELLS + first;
+            if (count > 1) {
+                index = index * Init.NUM_CELLS + second;
+            }
+        }
+
+        Table table = table(key);
+        return table == null ? UNKNOWN : table.value(index);
+    }
+
+    /**
+     * Check whether a probed value is a win for the player to move
+     *
+     * @param value the result of a probe
+     * @return true if the player to move wins
+     */
+    public static boolean isWin(int value) {
+        return value > 0;
+    }
+
+    /**
+     * Check whether a probed value is a loss for the player to move
+     *
+     * @param value the result of a probe
+     * @return true if the player to move loses
+     */
+    public static boolean isLoss(int value) {
+        return value < 0 && value != UNKNOWN;
+    }
+
+    /**
+     * Get the number of moves until the game is decided
+     *
+     * @param value the result of a probe that is a win or a loss
+     * @return the number of moves, by both players, until Rules.winner is no longer NEUTRAL
+     */
+    public static int distance(int value) {
+        return Math.abs(value) - 1;
+    }
+
+    /**
+     * Get the table for a combination of units
+     *
+     * @param whiteTypes the ordinals of white's unit types, in ascending order
+     * @param blackTypes the ordinals of black's unit types, in ascending order
+     * @return the table, or null if there is no file for it
+     */
+    Table table(int[] whiteTypes, int[] blackTypes) {
+        return table(key(whiteTypes) * (NUM_TYPES + 1) * (NUM_TYPES + 1) + key(blackTypes));
+    }
+
+    private Table table(int key) {
+        Table table = tables.get(key);
+        if (table == null) {
+            // two threads may both open the file, either mapping will do
+            table = open(directory.resolve(fileName(key)));
+            tables.set(key, table);
+        }
+        return table == MISSING ? null : table;
+    }
+
+    /**
+     * Check whether a file is a table of the current version, a table written before the format or the rules of the
+     * tables last changed has to be generated again
+     *
+     * @param file the table file
+     * @return true if the file exists and has the current magic number and version
+     */
+    static boolean isCurrent(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            return !header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Table open(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return MISSING;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.BIG_ENDIAN);
+            if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                return MISSING;
+            }
+            int units = data.get(12) + data.get(13);
+            if (data.capacity() < HEADER_SIZE + size(units)) {
+                return MISSING;
+            }
+            return new Table(data, data.get(14));
+        } catch (IOException e) {
+            // search without the table rather than not at all
+            return MISSING;
+        }
+    }
+
+    /**
+     * Write a tablebase file
+     *
+     * @param directory   the directory to write the file to
+     * @param whiteTypes  the ordinals of white's unit types, in ascending order
+     * @param blackTypes  the ordinals of black's unit types, in ascending order
+     * @param values      the value of each position
+     * @param maxDistance the longest distance of any position in the table
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path directory, int[] whiteTypes, int[] blackTypes, byte[] values, int maxDistance)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        for (int slot = 0; slot < 2 * MAX_SIDE_UNITS; slot++) {
+            int type = slot < whiteTypes.length ? whiteTypes[slot]
+                    : slot - whiteTypes.length < blackTypes.length ? blackTypes[slot - whiteTypes.length] : -1;
+            header.put((byte) type);
+        }
+        header.put((byte) whiteTypes.length).put((byte) blackTypes.length).put((byte) maxDistance).put((byte) 0);
+        header.flip();
+
+        Path file = directory.resolve(fileName(whiteTypes, blackTypes));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(values);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    /**
+     * Get the number of positions in a table
+     *
+     * @param units the total number of units in the table's positions
+     * @return 2 * 91^units, a position for each player to move and each cell of each unit
+     */
+    static int size(int units) {
+        int size = 2;
+        for (int i = 0; i < units; i++) {
+            size *= Init.NUM_CELLS;
+        }
+        return size;
+    }
+
+    /**
+     * Get the name of the file for a combination of units: the first letter of each of white's unit types, "v" and
+     * the letters of black's, with N for KNIGHT. For example "PRvQ.tb"
+     *
+     * @param whiteTypes the ordinals of white's unit types, in ascending order
+     * @param blackTypes the ordinals of black's unit types, in ascending order
+     * @return the file name
+     */
+    static String fileName(int[] whiteTypes, int[] blackTypes) {
+        StringBuilder name = new StringBuilder();
+        for (int type : whiteTypes) {
+            name.append(LETTERS.charAt(type));
+        }
+        name.append('v');
+        for (int type : blackTypes) {
+            name.append(LETTERS.charAt(type));
+        }
+        return name.append(".tb").toString();
+    }
+
+    private static String fileName(int key) {
+        int base = (NUM_TYPES + 1) * (NUM_TYPES + 1);
+        return fileName(types(key / base), types(key % base));
+    }
+
+    private static int key(int[] types) {
+        return (types[0] + 1) * (NUM_TYPES + 1) + (types.length > 1 ? types[1] + 1 : 0);
+    }
+
+    private static int[] types(int key) {
+        int first = key / (NUM_TYPES + 1) - 1;
+        int second = key % (NUM_TYPES + 1) - 1;
+        return second < 0 ? new int[]{first} : new int[]{first, second};
+    }
+
+    private static int type(PackedBoard board, int cell) {
+        return PackedBoard.pieceType(board.piece(cell)).ordinal();
+    }
+
+    // true if the unit on the cell is a pawn that has not moved yet, which may still move two tiles
+    private static boolean canJump(PackedBoard board, int side, int cell) {
+        Unit home = MoveTables.homeUnit(cell);
+        return MoveTables.pawnJump(side, cell) >= 0 && home != null && home.unitType == UnitType.PAWN
+                && board.unit(cell).equals(home);
+    }
+}
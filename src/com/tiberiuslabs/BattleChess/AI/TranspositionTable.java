@@ -0,0 +1,133 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of previously searched positions, keyed by the Zobrist hash of the position. <p/>
+ * Each entry packs the best move, the search depth, the bound type and the score into a single long, and is stored
+ * next to the hash xor'd with that long. A reader only accepts an entry whose key and data agree, so the table can be
+ * shared between search threads without locking: a torn write simply reads as a miss. <p/>
+ * Entries are grouped into buckets of two: the first slot keeps the deepest search of the positions that hash to the
+ * bucket, the second slot always takes the most recent one.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Transposition_table">Wikipedia article on transposition tables</a>
+ */
+public class TranspositionTable {
+    /**
+     * the score is the exact value of the position
+     */
+    public static final int EXACT = 1;
+    /**
+     * the search failed high, the value of the position is at least the score
+     */
+    public static final int LOWER = 2;
+    /**
+     * the search failed low, the value of the position is at most the score
+     */
+    public static final int UPPER = 3;
+
+    // bits 0-22 hold the move, 23-29 the depth, 30-31 the bound and 32-63 the score
+    private static final int MOVE_BITS = 23;
+    private static final int MAX_DEPTH = 127;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * Allocate an empty table
+     *
+     * @param sizeBits the table holds 2^sizeBits entries, each using 16 bytes
+     */
+    public TranspositionTable(int sizeBits) {
+        keys = new long[1 << sizeBits];
+        data = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 2;
+    }
+
+    /**
+     * Look up the entry for the given position
+     *
+     * @param hash the Zobrist hash of the position
+     * @return the packed entry, or 0 if the position is not in the table
+     */
+    public long probe(long hash) {
+        int i = (int) hash & mask;
+        for (int slot = i; slot < i + 2; slot++) {
+            long entry = data[slot];
+            if ((keys[slot] ^ entry) == hash && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store the result of searching a position
+     *
+     * @param hash  the Zobrist hash of the position
+     * @param depth the remaining depth the position was searched to
+     * @param bound EXACT, LOWER or UPPER depending on how the score relates to the search window
+     * @param score the score of the position
+     * @param move  the encoded best move found, or PackedBoard.NO_MOVE
+     * @see com.tiberiuslabs.BattleChess.AI.PackedBoard#encode(int, int, com.tiberiuslabs.BattleChess.Types.MoveType, byte, byte)
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int i = (int) hash & mask;
+        long entry = (long) score << 32 | (long) bound << 30 | (long) Math.min(depth, MAX_DEPTH) << MOVE_BITS | move;
+
+        // keep the deeper search in the first slot, unless it is for the same position
+        long first = data[i];
+        int slot = (keys[i] ^ first) == hash || depth(first) <= depth ? i : i + 1;
+        data[slot] = entry;
+        keys[slot] = hash ^ entry;
+    }
+
+    /**
+     * Remove every entry from the table
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Get the score of a table entry
+     *
+     * @param entry the packed entry returned by probe
+     * @return the score of the searched position
+     */
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Get the depth of a table entry
+     *
+     * @param entry the packed entry returned by probe
+     * @return the remaining depth the position was searched to
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> MOVE_BITS) & MAX_DEPTH;
+    }
+
+    /**
+     * Get the bound type of a table entry
+     *
+     * @param entry the packed entry returned by probe
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 30) & 3;
+    }
+
+    /**
+     * Get the best move of a table entry
+     *
+     * @param entry the packed entry returned by probe
+     * @return the encoded move, or PackedBoard.NO_MOVE if no move was best
+     */
+    public static int move(long entry) {
+        return (int) entry & ((1 << MOVE_BITS) - 1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.tiberiuslabs.BattleChess.AI;
+
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.util.Random;
+
+/**
+ * Random 64-bit keys used to hash board positions. <p/>
+ * The hash of a position is the xor of the key for each (piece code, cell) pair on the board, the key for each
+ * (player, unit type, count) of the units in the graveyards, and the side key when black is to move. Every term can
+ * be added or removed with a single xor, so PackedBoard keeps the hash up to date as moves are made and undone.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Zobrist_hashing">Wikipedia article on Zobrist hashing</a>
+ */
+public final class Zobrist {
+    // fixed seed so that hashes are stable between runs and can be stored on disk
+    private static final long SEED = 0x42617474_6c654368L;
+
+    private static final long[][] pieceKeys = new long[16][Init.NUM_CELLS];
+    private static final long[][][] deadKeys = new long[2][UnitType.values().length][Init.defaultPositions.size() + 1];
+    private static final long sideKey;
+
+    static {
+        Random random = new Random(SEED);
+        for (long[] keys : pieceKeys) {
+            for (int cell = 0; cell < keys.length; cell++) {
+                keys[cell] = random.nextLong();
+            }
+        }
+        for (long[][] sideKeys : deadKeys) {
+            for (long[] keys : sideKeys) {
+                for (int count = 0; count < keys.length; count++) {
+                    keys[count] = random.nextLong();
+                }
+            }
+        }
+        sideKey = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key for a unit standing on a cell
+     *
+     * @param piece the packed piece code of the unit
+     * @param cell  the cell number
+     * @return the key to xor into the hash
+     */
+    public static long piece(byte piece, int cell) {
+        return pieceKeys[piece][cell];
+    }
+
+    /**
+     * Get the key for the count'th dead unit of a type in a player's graveyard
+     *
+     * @param side     the player index
+     * @param unitType the type of the dead unit
+     * @param count    the number of dead units of that type, including this one
+     * @return the key to xor into the hash
+     */
+    public static long dead(int side, UnitType unitType, int count) {
+        return deadKeys[side][unitType.ordinal()][count];
+    }
+
+    /**
+     * Get the key that is present in the hash when black is to move
+     *
+     * @return the key to xor into the hash
+     */
+    public static long side() {
+        return sideKey;
+    }
+}
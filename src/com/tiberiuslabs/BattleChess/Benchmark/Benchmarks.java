@@ -0,0 +1,325 @@
+package com.tiberiuslabs.BattleChess.Benchmark;
+
+import com.tiberiuslabs.BattleChess.AI.AI;
+import com.tiberiuslabs.BattleChess.AI.MoveGenerator;
+import com.tiberiuslabs.BattleChess.AI.PackedBoard;
+import com.tiberiuslabs.BattleChess.AI.Perft;
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFunc;
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory;
+import com.tiberiuslabs.BattleChess.ChessEngine.GameBoard;
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Micro-benchmarks for the hot paths of the engine, run headless from the command line:
+ * <pre>
+ *     java com.tiberiuslabs.BattleChess.Benchmark.Benchmarks [-quick] [name...]
+ * </pre>
+ * Each benchmark whose name contains one of the given names is run, all of them by default. A benchmark is warmed up
+ * before it is measured, then each measured iteration reports the time and the bytes allocated per operation, so
+ * that results can be compared from one change to the next. The searches of AI.getMove reuse one AI, whose
+ * transposition table is cleared before each search outside of the measurement, AI.clearSearch measures that set up on
+ * its own. <p/>
+ * The benchmarks run on the stored positions of Perft, so that they do not need JavaFX on the classpath. Only the
+ * GameBoard copy needs it, and it is skipped when JavaFX is missing.
+ *
+ * @see com.tiberiuslabs.BattleChess.AI.Perft
+ */
+public final class Benchmarks {
+    private static final String[] POSITIONS = {"start", "opening", "middlegame", "recruitment"};
+
+    private final List<PackedBoard> boards = new ArrayList<>();
+    private final Map<String, Operation> benchmarks = new LinkedHashMap<>();
+
+    // the results of every operation are added up here so that the JIT cannot throw the work away
+    private long sink;
+
+    /**
+     * A single operation of a benchmark
+     */
+    @FunctionalInterface
+    private interface Operation {
+        /**
+         * @return any value computed by the operation, consumed by the benchmark so that it is not optimized away
+         */
+        long run();
+    }
+
+    /**
+     * An operation that has to be set up again before each run, the set up is left out of the measured time and
+     * allocations
+     */
+    private interface SetUpOperation extends Operation {
+        void setUp();
+    }
+
+    private Benchmarks() {
+        for (String name : POSITIONS) {
+            boards.add(Perft.position(name));
+        }
+
+        for (UnitType unitType : UnitType.values()) {
+            benchmarks.put("Rules.getValidMoves." + unitType, validMoves(unitType));
+        }
+        benchmarks.put("Rules.getValidRecruitments", this::validRecruitments);
+        benchmarks.put("Rules.winner", () -> {
+            long count = 0;
+            for (PackedBoard board : boards) {
+                count += Rules.winner(board).ordinal();
+            }
+            return count;
+        });
+        benchmarks.put("MoveGenerator.generateMoves", generateMoves());
+        benchmarks.put("PackedBoard.makeMove/undoMove", makeUndo());
+
+        ScoreFunc[] scoreFuncs = ScoreFuncFactory.buildScoreFuncs();
+        for (int i = 0; i < scoreFuncs.length; i++) {
+            ScoreFunc scoreFunc = scoreFuncs[i];
+            benchmarks.put("ScoreFunc[" + i + "]", () -> {
+                long score = 0;
+                for (PackedBoard board : boards) {
+                    score += scoreFunc.score(board, Color.WHITE) + scoreFunc.score(board, Color.BLACK);
+                }
+                return score;
+            });
+        }
+
+        benchmarks.put("GameBoard(GameBoard)", gameBoardCopy());
+        benchmarks.put("AI.clearSearch", clearSearch());
+        for (int i = 0; i < POSITIONS.length; i++) {
+            benchmarks.put("AI.getMove.depth8." + POSITIONS[i], getMove(boards.get(i), 8));
+        }
+    }
+
+    private Operation validMoves(UnitType unitType) {
+        return () -> {
+            long count = 0;
+            for (PackedBoard board : boards) {
+                for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+                    Unit unit = board.unit(cell);
+                    if (unit != null && unit.unitType == unitType) {
+                        count += Rules.getValidMoves(unit, Init.cellPositions.get(cell), board).size();
+                    }
+                }
+            }
+            return count;
+        };
+    }
+
+    private long validRecruitments() {
+        long count = 0;
+        for (PackedBoard board : boards) {
+            for (Color player : new Color[]{Color.WHITE, Color.BLACK}) {
+                for (Unit recruit : board.getGraveyard(player)) {
+                    count += Rules.getValidRecruitments(player, recruit, board).size();
+                }
+            }
+        }
+        return count;
+    }
+
+    private Operation generateMoves() {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        return () -> {
+            long count = 0;
+            for (PackedBoard board : boards) {
+                count += MoveGenerator.generateMoves(board, 0, moves, 0);
+                count += MoveGenerator.generateMoves(board, 1, moves, 0);
+            }
+            return count;
+        };
+    }
+
+    private Operation makeUndo() {
+        // every move of the side to move of each position
+        List<int[]> allMoves = new ArrayList<>();
+        for (PackedBoard board : boards) {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+            allMoves.add(Arrays.copyOf(moves, end));
+        }
+        return () -> {
+            long hash = 0;
+            for (int i = 0; i < boards.size(); i++) {
+                PackedBoard board = boards.get(i);
+                for (int move : allMoves.get(i)) {
+                    board.makeMove(move);
+                    hash ^= board.hash();
+                    board.undoMove();
+                }
+            }
+            return hash;
+        };
+    }
+
+    private Operation gameBoardCopy() {
+        try {
+            GameBoard board = new GameBoard();
+            return () -> new GameBoard(board).numActiveUnits(Color.WHITE);
+        } catch (NoClassDefFoundError e) {
+            return null;
+        }
+    }
+
+    // an AI for the side to move of the board, which leaves the shared search statistics alone
+    private static AI newAI(PackedBoard board, int depth) {
+        AI ai = new AI(ScoreFuncFactory.buildScoreFuncs(), board.sideToMove() == 1 ? Color.BLACK : Color.WHITE);
+        ai.setSearchLimits(Long.MAX_VALUE, depth);
+        ai.setRecordStatistics(false);
+        return ai;
+    }
+
+    private Operation clearSearch() {
+        // the set up that each search of AI.getMove leaves out
+        AI ai = newAI(boards.get(0), AI.DEPTH_STEP);
+        try {
+            ai.getMove(boards.get(0));
+        } catch (AI.NoMoveException e) {
+            throw new IllegalStateException(e);
+        }
+        return () -> {
+            ai.clearSearch();
+            return 0;
+        };
+    }
+
+    private Operation getMove(PackedBoard board, int depth) {
+        AI ai = newAI(board, depth);
+        return new SetUpOperation() {
+            @Override
+            public void setUp() {
+                // the search starts with an empty transposition table, as the first search of a new AI would
+                ai.clearSearch();
+            }
+
+            @Override
+            public long run() {
+                try {
+                    return ai.getMove(board).finalPos.hashCode();
+                } catch (AI.NoMoveException e) {
+                    return 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * Run a benchmark: warm it up, then time several iterations of as many operations as fit in the iteration time
+     */
+    private void measure(String name, Operation operation, long iterationMillis, int iterations) {
+        if (operation == null) {
+            System.out.printf("%-36s skipped, JavaFX is not on the classpath%n", name);
+            return;
+        }
+
+        // warm up for as long as the measurement takes, and find how many operations fit in an iteration
+        long ops = 1;
+        long warmupEnd = System.nanoTime() + iterationMillis * iterations * 1_000_000;
+        long opNanos = 0;
+        long[] totals = new long[2];
+        while (System.nanoTime() < warmupEnd) {
+            totals[0] = 0;
+            run(operation, ops, totals);
+            opNanos = Math.max(totals[0] / ops, 1);
+            ops = Math.max(1, iterationMillis * 1_000_000 / opNanos / 4);
+        }
+        ops = Math.max(1, iterationMillis * 1_000_000 / opNanos);
+
+        double[] nanosPerOp = new double[iterations];
+        double[] bytesPerOp = new double[iterations];
+        for (int it = 0; it < iterations; it++) {
+            totals[0] = 0;
+            totals[1] = 0;
+            run(operation, ops, totals);
+            nanosPerOp[it] = (double) totals[0] / ops;
+            bytesPerOp[it] = (double) totals[1] / ops;
+        }
+
+        double mean = mean(nanosPerOp);
+        double error = 0;
+        for (double nanos : nanosPerOp) {
+            error += (nanos - mean) * (nanos - mean);
+        }
+        error = Math.sqrt(error / Math.max(1, iterations - 1));
+        System.out.printf("%-36s %14.1f ns/op  +- %8.1f  %12.0f ops/s  %12.1f B/op%n",
+                name, mean, error, 1e9 / mean, mean(bytesPerOp));
+    }
+
+    // run an operation a number of times, adding the nanoseconds taken and the bytes allocated to totals[0] and [1]
+    private void run(Operation operation, long ops, long[] totals) {
+        if (operation instanceof SetUpOperation) {
+            SetUpOperation setUpOperation = (SetUpOperation) operation;
+            for (long i = 0; i < ops; i++) {
+                setUpOperation.setUp();
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                sink += operation.run();
+                totals[0] += System.nanoTime() - start;
+                totals[1] += allocatedBytes() - bytes;
+            }
+        } else {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (long i = 0; i < ops; i++) {
+                sink += operation.run();
+            }
+            totals[0] += System.nanoTime() - start;
+            totals[1] += allocatedBytes() - bytes;
+        }
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    // the bytes allocated so far by the current thread, or 0 if the JVM cannot tell
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        long iterationMillis = 1000;
+        int iterations = 5;
+        List<String> names = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-quick")) {
+                iterationMillis = 200;
+                iterations = 3;
+            } else {
+                names.add(arg);
+            }
+        }
+
+        Benchmarks suite = new Benchmarks();
+        for (Map.Entry<String, Operation> benchmark : suite.benchmarks.entrySet()) {
+            boolean selected = names.isEmpty();
+            for (String name : names) {
+                selected |= benchmark.getKey().contains(name);
+            }
+            if (selected) {
+                suite.measure(benchmark.getKey(), benchmark.getValue(), iterationMillis, iterations);
+            }
+        }
+        // print the sink so that the work done by the operations is used
+        System.out.println("(" + suite.sink + ")");
+    }
+}
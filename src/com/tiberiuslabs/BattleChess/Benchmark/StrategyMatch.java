@@ -0,0 +1,159 @@
+package com.tiberiuslabs.BattleChess.Benchmark;
+
+import com.tiberiuslabs.BattleChess.AI.AI;
+import com.tiberiuslabs.BattleChess.AI.MoveGenerator;
+import com.tiberiuslabs.BattleChess.AI.PackedBoard;
+import com.tiberiuslabs.BattleChess.AI.Score.ScoreFuncFactory;
+import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
+import com.tiberiuslabs.BattleChess.Records.GameRecord;
+import com.tiberiuslabs.BattleChess.Records.GameRecordWriter;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.SearchStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays the alpha/beta search against the Monte-Carlo tree search at equal CPU time, run headless from the command
+ * line:
+ * <pre>
+ *     java com.tiberiuslabs.BattleChess.Benchmark.StrategyMatch [-games N] [-millis N] [-threads N] [-seed N]
+ *         [-record file]
+ * </pre>
+ * Both AIs get the same time for each move and the same number of threads, and take turns at playing white. Each
+ * game starts with two random moves so that the games differ, and a game that reaches the move limit is a draw.
+ * With -record the games are also written to the file, as text if its name ends in .txt and in binary otherwise.
+ *
+ * @see com.tiberiuslabs.BattleChess.Types.SearchStrategy
+ */
+public final class StrategyMatch {
+    private static final int MAX_MOVES = 200;
+    private static final int RANDOM_MOVES = 2;
+    private static final int MAX_DEPTH = 64;
+
+    private StrategyMatch() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = 20;
+        long millis = 1000;
+        int threads = 1;
+        long seed = System.nanoTime();
+        String recordFile = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-millis":
+                    millis = Long.parseLong(args[i + 1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "-record":
+                    recordFile = args[i + 1];
+                    break;
+                default:
+                    System.err.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        Random random = new Random(seed);
+        // one pool for each AI, so that neither can take threads from the other
+        ForkJoinPool alphaBetaPool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+        ForkJoinPool monteCarloPool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+        int alphaBetaWins = 0;
+        int monteCarloWins = 0;
+        int draws = 0;
+        GameRecordWriter records = recordFile == null ? null : new GameRecordWriter(
+                Files.newOutputStream(Paths.get(recordFile)),
+                recordFile.endsWith(".txt") ? GameRecordWriter.Format.TEXT : GameRecordWriter.Format.BINARY);
+        for (int game = 0; game < games; game++) {
+            Color monteCarloColor = game % 2 == 0 ? Color.WHITE : Color.BLACK;
+            AI alphaBeta = newAI(SearchStrategy.ALPHA_BETA, monteCarloColor == Color.WHITE ? Color.BLACK : Color.WHITE,
+                    millis, alphaBetaPool);
+            AI monteCarlo = newAI(SearchStrategy.MONTE_CARLO, monteCarloColor, millis, monteCarloPool);
+
+            GameRecord record = play(alphaBeta, monteCarlo, random, millis);
+            if (records != null) {
+                records.write(record);
+            }
+            Color winner = record.getWinner();
+            if (winner == Color.NEUTRAL) {
+                draws++;
+            } else if (winner == monteCarloColor) {
+                monteCarloWins++;
+            } else {
+                alphaBetaWins++;
+            }
+            System.out.printf("game %d: Monte-Carlo played %s, winner %s%n", game + 1, monteCarloColor, winner);
+        }
+        System.out.printf("alpha/beta %d, Monte-Carlo %d, draws %d%n", alphaBetaWins, monteCarloWins, draws);
+        if (records != null) {
+            records.close();
+        }
+
+        if (alphaBetaPool != null) {
+            alphaBetaPool.shutdown();
+            monteCarloPool.shutdown();
+        }
+    }
+
+    private static AI newAI(SearchStrategy strategy, Color color, long millis, ForkJoinPool pool) {
+        AI ai = new AI(ScoreFuncFactory.buildScoreFuncs(), color);
+        ai.setStrategy(strategy);
+        ai.setSearchLimits(millis, MAX_DEPTH);
+        ai.setPool(pool);
+        return ai;
+    }
+
+    // play one game from the start position, the winner of the record is Color.NEUTRAL for a draw
+    private static GameRecord play(AI first, AI second, Random random, long millis) {
+        PackedBoard board = new PackedBoard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        short[] played = new short[MAX_MOVES];
+        int ply = 0;
+        for (; ply < RANDOM_MOVES; ply++) {
+            int end = MoveGenerator.generateMoves(board, board.sideToMove(), moves, 0);
+            played[ply] = GameRecord.pack(moves[random.nextInt(end)]);
+            board.makeMove(GameRecord.unpack(board, played[ply]));
+        }
+
+        Color winner = Color.NEUTRAL;
+        for (; ply < MAX_MOVES; ply++) {
+            winner = Rules.winner(board);
+            if (winner != Color.NEUTRAL) {
+                break;
+            }
+            Color toMove = board.sideToMove() == 0 ? Color.WHITE : Color.BLACK;
+            AI ai = first.getColor() == toMove ? first : second;
+            try {
+                int move = PackedBoard.encode(ai.getMove(new PackedBoard(board)));
+                played[ply] = GameRecord.pack(move);
+                board.makeMove(move);
+            } catch (AI.NoMoveException e) {
+                // a player who cannot move loses
+                winner = toMove == Color.WHITE ? Color.BLACK : Color.WHITE;
+                break;
+            }
+        }
+
+        GameRecord.Player white = player(first.getColor() == Color.WHITE ? first : second, millis);
+        GameRecord.Player black = player(first.getColor() == Color.WHITE ? second : first, millis);
+        return new GameRecord(white, black, winner, Arrays.copyOf(played, ply));
+    }
+
+    private static GameRecord.Player player(AI ai, long millis) {
+        return GameRecord.Player.ai(ai.getStrategy() == SearchStrategy.ALPHA_BETA ? "alpha/beta" : "Monte-Carlo",
+                ai.getStrategy(), millis, MAX_DEPTH);
+    }
+}
@@ -0,0 +1,120 @@
+package com.tiberiuslabs.BattleChess.ChessEngine;
+
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable state of a GameBoard at one point of the game, taken with GameBoard.snapshot <p/>
+ * A snapshot shares its arrays with the board it was taken from, and the board copies them before it next changes, so
+ * taking a snapshot costs nothing until the next move and at most one copy of the board after it. A snapshot can be
+ * read from any thread without locking while the game goes on, as the AI, pondering and hints do.
+ *
+ * @author Amandeep Gill
+ * @see GameBoard#snapshot()
+ */
+public final class BoardSnapshot implements ReadOnlyBoard {
+    // the code of the unit on each cell and the codes of each player's dead units, never written once shared
+    private final short[] unitCodes;
+    private final short[][] deadCodes;
+    private final int numWhiteDead;
+    private final int numBlackDead;
+    private final int numWhiteUnits;
+    private final int numBlackUnits;
+    private final boolean whiteKing;
+    private final boolean blackKing;
+
+    BoardSnapshot(short[] unitCodes, short[][] deadCodes, int[] numDead, int[] numUnits, int[] numKings) {
+        this.unitCodes = unitCodes;
+        this.deadCodes = deadCodes;
+        this.numWhiteDead = numDead[0];
+        this.numBlackDead = numDead[1];
+        this.numWhiteUnits = numUnits[0];
+        this.numBlackUnits = numUnits[1];
+        this.whiteKing = numKings[0] > 0;
+        this.blackKing = numKings[1] > 0;
+    }
+
+    /**
+     * Gets the Unit at the given position
+     *
+     * @param pos the board position to get the Unit from
+     * @return the Unit at the given position, or null if there is none or the position is not inBounds
+     */
+    @Override
+    public Unit get(Position pos) {
+        return pos == null || pos.cell() < 0 ? null : Unit.fromCode(unitCodes[pos.cell()]);
+    }
+
+    @Override
+    public int numActiveUnits(Color player) {
+        return player == Color.BLACK ? numBlackUnits : numWhiteUnits;
+    }
+
+    /**
+     * Gets the set of the players active units
+     *
+     * @param player the player's color
+     * @return an unmodifiable set of all the units that the player had on the board
+     */
+    @Override
+    public Set<Unit> getActiveUnits(Color player) {
+        Set<Unit> units = new HashSet<>();
+        for (short code : unitCodes) {
+            Unit unit = Unit.fromCode(code);
+            if (unit != null && unit.color == player) {
+                units.add(unit);
+            }
+        }
+        return Collections.unmodifiableSet(units);
+    }
+
+    @Override
+    public boolean hasKing(Color player) {
+        return player == Color.BLACK ? blackKing : whiteKing;
+    }
+
+    /**
+     * Gets the player's graveyard
+     *
+     * @param player the player's color
+     * @return an unmodifiable set of the player's dead units, the white player's if the player color is not black
+     */
+    @Override
+    public Set<Unit> getGraveyard(Color player) {
+        boolean black = player == Color.BLACK;
+        int numDead = black ? numBlackDead : numWhiteDead;
+        Set<Unit> units = new HashSet<>();
+        for (int i = 0; i < numDead; i++) {
+            units.add(Unit.fromCode(deadCodes[black ? 1 : 0][i]));
+        }
+        return Collections.unmodifiableSet(units);
+    }
+
+    @Override
+    public int numCitiesHeld(Color player) {
+        int cities = 0;
+        for (Position position : Init.cities) {
+            Unit city = get(position);
+            if (city != null && city.color == player && city.unitType != UnitType.PAWN) {
+                cities += 1;
+            }
+        }
+        return cities;
+    }
+
+    @Override
+    public Unit[][] getArrayBoard() {
+        Unit[][] board = new Unit[11][11];
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Position pos = Init.cellPositions.get(cell);
+            board[pos.x() + 5][pos.y() + 5] = Unit.fromCode(unitCodes[cell]);
+        }
+        return board;
+    }
+}
@@ -4,6 +4,7 @@ import com.sun.istack.internal.NotNull;
 import com.sun.javafx.collections.ObservableListWrapper;
 import com.sun.javafx.collections.ObservableMapWrapper;
 import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
 import com.tiberiuslabs.BattleChess.Types.Position;
 import com.tiberiuslabs.BattleChess.Types.Unit;
 import com.tiberiuslabs.BattleChess.Types.UnitType;
@@ -19,65 +20,101 @@ import java.util.*;
  * <li>which units are in the graveyard
  * <li>which player's turn it is currently
  * </ul>
+ * The units are kept as their codes in primitive arrays, the unit on each cell and each player's dead units, so that
+ * copying a GameBoard is a few array copies. The map of positions to units that the GUI listens to is only built the
+ * first time getBoard is called, it is kept up to date from then on and is not carried over to copies of the board.
+ * Other threads should read the board through a snapshot, which shares the arrays until the board next changes. <p/>
+ * Every change to the board is kept in a move log, so that moves can be taken back and made again and the board can
+ * be moved to any ply of the game without copying it. Each entry of the log is a move encoded into an int along with
+ * the code of the unit that it captured.
  *
  * @author Amandeep Gill
  */
 public class GameBoard implements Board {
+    private static final int MAX_UNITS = Init.defaultPositions.size();
+    // the from cell of a logged recruitment
+    private static final int RECRUIT = 0x7f;
+    private static final short[] START_CODES = new short[Init.NUM_CELLS];
 
-    @SuppressWarnings("unchecked")
-    private final ObservableMap<Position, Unit> board = new ObservableMapWrapper(new HashMap<>(Init.initBoard()));
+    static {
+        for (Map.Entry<Position, Unit> entry : Init.defaultPositions.entrySet()) {
+            START_CODES[entry.getKey().cell()] = entry.getValue().code;
+        }
+    }
 
-    private final Set<Unit> blackUnits = new HashSet<>();
-    private final Set<Unit> blackGraveyard = new HashSet<>();
-    private boolean blackKing;
-    private int numBlackUnits;
+    // the code of the unit on each cell, 0 for an empty cell, see Unit.fromCode
+    private short[] unitCodes = new short[Init.NUM_CELLS];
+    // the codes of each player's dead units, white is 0 and black is 1
+    private short[][] deadCodes = new short[2][MAX_UNITS];
+    private final int[] numDead = new int[2];
+    private final int[] numUnits = new int[2];
+    private final int[] numKings = new int[2];
 
-    private final Set<Unit> whiteUnits = new HashSet<>();
-    private final Set<Unit> whiteGraveyard = new HashSet<>();
-    private boolean whiteKing;
-    private int numWhiteUnits;
+    // the move log: the moves encoded as in encode and the code of the unit each one captured, 0 for none. The moves
+    // before ply have been made and the ones from ply up to plies have been taken back and can be made again
+    private int[] log = new int[64];
+    private short[] captured = new short[64];
+    private int ply;
+    private int plies;
+
+    // the view of the board for the GUI, null until getBoard is first called
+    private ObservableMap<Position, Unit> board;
+    // the last snapshot taken, which shares unitCodes and deadCodes, null once the board has changed since
+    private BoardSnapshot snapshot;
 
     /**
      * Default constructor
      */
     public GameBoard() {
-        numWhiteUnits = 0;
-        numBlackUnits = 0;
-        for (Map.Entry entry : board.entrySet()) {
-            Unit unit = (Unit) entry.getValue();
-            if (unit != null) {
-                unit.position = (Position) entry.getKey();
-                if (unit.color == Color.BLACK) {
-                    blackUnits.add(unit);
-                    numBlackUnits += 1;
-                } else {
-                    whiteUnits.add(unit);
-                    numWhiteUnits += 1;
-                }
+        System.arraycopy(START_CODES, 0, unitCodes, 0, unitCodes.length);
+        for (short code : START_CODES) {
+            if (code != 0) {
+                Unit unit = Unit.fromCode(code);
+                numUnits[side(unit.color)] += 1;
+                numKings[side(unit.color)] += unit.unitType == UnitType.KING ? 1 : 0;
             }
         }
-        blackKing = true;
-        whiteKing = true;
     }
 
     /**
-     * Copies the contents of the other GameBoard into this GameBoard
+     * Copies the contents of the other GameBoard into this GameBoard, the move log is not copied
      *
      * @param other the GameBoard to get the game state information from, must not be null
      */
     public GameBoard(GameBoard other) {
-        board.putAll(other.board);
+        System.arraycopy(other.unitCodes, 0, unitCodes, 0, unitCodes.length);
+        System.arraycopy(other.deadCodes[0], 0, deadCodes[0], 0, other.numDead[0]);
+        System.arraycopy(other.deadCodes[1], 0, deadCodes[1], 0, other.numDead[1]);
+        System.arraycopy(other.numDead, 0, numDead, 0, numDead.length);
+        System.arraycopy(other.numUnits, 0, numUnits, 0, numUnits.length);
+        System.arraycopy(other.numKings, 0, numKings, 0, numKings.length);
+    }
 
-        blackGraveyard.addAll(other.blackGraveyard);
-        blackUnits.addAll(other.blackUnits);
-        blackKing = other.blackKing;
+    private static int side(Color color) {
+        return color == Color.BLACK ? 1 : 0;
+    }
 
-        whiteGraveyard.addAll(other.whiteGraveyard);
-        whiteUnits.addAll(other.whiteUnits);
-        whiteKing = other.whiteKing;
+    /**
+     * Get an immutable snapshot of the current state of the board, which may be read from any thread while this board
+     * keeps changing. Taking a snapshot does not copy the board, the board copies its state the next time it changes
+     * instead, and taking another snapshot before then returns the same one.
+     *
+     * @return the state of the board as it is now
+     */
+    public BoardSnapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = new BoardSnapshot(unitCodes, deadCodes, numDead, numUnits, numKings);
+        }
+        return snapshot;
+    }
 
-        numBlackUnits = other.numBlackUnits;
-        numWhiteUnits = other.numWhiteUnits;
+    // stop sharing the arrays with the last snapshot, before they are written
+    private void unshare() {
+        if (snapshot != null) {
+            unitCodes = unitCodes.clone();
+            deadCodes = new short[][]{deadCodes[0].clone(), deadCodes[1].clone()};
+            snapshot = null;
+        }
     }
 
     /**
@@ -89,22 +126,35 @@ public class GameBoard implements Board {
      */
     @Override
     public Unit get(Position pos) {
-        return board.get(pos);
+        return pos == null || pos.cell() < 0 ? null : Unit.fromCode(unitCodes[pos.cell()]);
     }
 
     /**
-     * Gets the pos -> unit mapping that represents the board
+     * Gets the pos -> unit mapping that represents the board, changes to the board are made to the map as well so
+     * that listeners see each move, but changes made to the map are not made to the board
      *
      * @return a mapping of Positions to Units
      */
     @Override
     public ObservableMap<Position, Unit> getBoard() {
+        if (board == null) {
+            Map<Position, Unit> map = new HashMap<>(2 * Init.NUM_CELLS);
+            for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+                map.put(Init.cellPositions.get(cell), Unit.fromCode(unitCodes[cell]));
+            }
+            board = new ObservableMapWrapper<>(map);
+        }
         return board;
     }
 
     @Override
     public Unit[][] getArrayBoard() {
-        return null;
+        Unit[][] board = new Unit[11][11];
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Position pos = Init.cellPositions.get(cell);
+            board[pos.x() + 5][pos.y() + 5] = Unit.fromCode(unitCodes[cell]);
+        }
+        return board;
     }
 
     /**
@@ -116,22 +166,10 @@ public class GameBoard implements Board {
      */
     @Override
     public boolean set(@NotNull Unit unit, @NotNull Position position) {
-        boolean isBlack = unit.color == Color.BLACK;
-        if (isBlack ? whiteGraveyard.contains(unit) : blackGraveyard.contains(unit) && board.get(position) == null) {
-            board.put(position, unit);
-            unit.position = position;
-            if (isBlack) {
-                blackGraveyard.remove(unit);
-                blackUnits.add(unit);
-                blackKing = blackKing || unit.unitType == UnitType.KING;
-                numBlackUnits += 1;
-            } else {
-                whiteGraveyard.remove(unit);
-                whiteUnits.add(unit);
-                whiteKing = whiteKing || unit.unitType == UnitType.KING;
-                numWhiteUnits += 1;
-            }
-
+        int cell = position.cell();
+        if (deadSlot(side(unit.color), unit.code) >= 0 && cell >= 0 && unitCodes[cell] == 0) {
+            int move = encode(RECRUIT, cell, unit.code);
+            record(move, apply(move));
             return true;
         }
         return false;
@@ -146,29 +184,12 @@ public class GameBoard implements Board {
      */
     @Override
     public void move(@NotNull Position startPos, @NotNull Position finalPos) {
-        Unit attacker = board.get(startPos);
-        Unit defender = board.get(finalPos);
-        if (attacker == null) {
+        short attacker = unitCodes[startPos.cell()];
+        if (attacker == 0) {
             return;
         }
-        attacker.position = finalPos;
-        if (defender != null) {
-            defender.position = null;
-            if (defender.color == Color.BLACK) {
-                blackGraveyard.add(defender);
-                blackUnits.remove(defender);
-                numBlackUnits -= 1;
-                blackKing = !(defender.unitType == UnitType.KING);
-            } else {
-                whiteGraveyard.add(defender);
-                whiteUnits.remove(defender);
-                numWhiteUnits -= 1;
-                whiteKing = !(defender.unitType == UnitType.KING);
-            }
-        }
-
-        board.put(startPos, null);
-        board.put(finalPos, attacker);
+        int move = encode(startPos.cell(), finalPos.cell(), attacker);
+        record(move, apply(move));
     }
 
     @Override
@@ -187,10 +208,177 @@ public class GameBoard implements Board {
     }
 
     /**
-     * does nothing since the player can't undo their moves
+     * Takes back the last move made on the board, if there is one. The move can be made again with redoMove until a
+     * different move is made.
      */
     @Override
     public void undoMove() {
+        if (ply > 0) {
+            ply -= 1;
+            revert(log[ply], captured[ply]);
+        }
+    }
+
+    /**
+     * Makes the last move that was taken back again
+     *
+     * @return true if there was a move to make again, false otherwise
+     */
+    public boolean redoMove() {
+        if (ply < plies) {
+            apply(log[ply]);
+            ply += 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes back or makes again moves from the move log until the board is at the given ply
+     *
+     * @param target the number of moves of the log to have made, in [0, getLogLength()]
+     */
+    public void seek(int target) {
+        if (target < 0 || target > plies) {
+            throw new IndexOutOfBoundsException("ply " + target + " of " + plies);
+        }
+        while (ply > target) {
+            undoMove();
+        }
+        while (ply < target) {
+            redoMove();
+        }
+    }
+
+    /**
+     * Get the number of moves made on the board, not counting the ones that have been taken back
+     *
+     * @return the current ply of the move log
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Get the number of moves in the move log, including the ones that have been taken back and can be made again
+     *
+     * @return the length of the move log
+     */
+    public int getLogLength() {
+        return plies;
+    }
+
+    /**
+     * Get a move from the move log
+     *
+     * @param ply the index of the move in the log, in [0, getLogLength())
+     * @return the move, with the unit that it captured as the defender
+     */
+    public Move getLoggedMove(int ply) {
+        if (ply < 0 || ply >= plies) {
+            throw new IndexOutOfBoundsException("ply " + ply + " of " + plies);
+        }
+        int move = log[ply];
+        int from = move >>> 7 & 0x7f;
+        Position finalPos = Init.cellPositions.get(move & 0x7f);
+        Unit attacker = Unit.fromCode(move >>> 14);
+        if (from == RECRUIT) {
+            return new Move(attacker, null, null, finalPos, MoveType.REC);
+        }
+        Unit defender = Unit.fromCode(captured[ply]);
+        return new Move(attacker, Init.cellPositions.get(from), defender, finalPos,
+                defender == null ? MoveType.MOV : MoveType.ATK);
+    }
+
+    // encode a move for the log: bits 0-6 are the to cell, 7-13 the from cell or RECRUIT, 14-24 the unit's code
+    private static int encode(int from, int to, short unit) {
+        return to | from << 7 | unit << 14;
+    }
+
+    // add a move that has just been made to the log, dropping the moves that were taken back
+    private void record(int move, short capture) {
+        if (ply == log.length) {
+            log = Arrays.copyOf(log, ply * 2);
+            captured = Arrays.copyOf(captured, ply * 2);
+        }
+        log[ply] = move;
+        captured[ply] = capture;
+        ply += 1;
+        plies = ply;
+    }
+
+    // make a logged move on the board, returning the code of the unit that it captured or 0
+    private short apply(int move) {
+        unshare();
+        int to = move & 0x7f;
+        int from = move >>> 7 & 0x7f;
+        short unit = (short) (move >>> 14);
+        if (from == RECRUIT) {
+            exhume(unit);
+            put(to, unit);
+            return 0;
+        }
+        short defender = unitCodes[to];
+        if (defender != 0) {
+            bury(defender);
+        }
+        put(from, (short) 0);
+        put(to, unit);
+        return defender;
+    }
+
+    // take back a logged move, given the code of the unit that it captured or 0
+    private void revert(int move, short defender) {
+        unshare();
+        int to = move & 0x7f;
+        int from = move >>> 7 & 0x7f;
+        short unit = (short) (move >>> 14);
+        if (from == RECRUIT) {
+            put(to, (short) 0);
+            bury(unit);
+            return;
+        }
+        put(from, unit);
+        put(to, defender);
+        if (defender != 0) {
+            exhume(defender);
+        }
+    }
+
+    // move a unit from the board to its player's graveyard, the unit's cell is left as it is
+    private void bury(short code) {
+        Unit unit = Unit.fromCode(code);
+        int side = side(unit.color);
+        deadCodes[side][numDead[side]++] = code;
+        numUnits[side] -= 1;
+        numKings[side] -= unit.unitType == UnitType.KING ? 1 : 0;
+    }
+
+    // take a unit out of its player's graveyard to put it on the board, the unit's cell is left as it is
+    private void exhume(short code) {
+        Unit unit = Unit.fromCode(code);
+        int side = side(unit.color);
+        deadCodes[side][deadSlot(side, code)] = deadCodes[side][--numDead[side]];
+        numUnits[side] += 1;
+        numKings[side] += unit.unitType == UnitType.KING ? 1 : 0;
+    }
+
+    // set the code of the unit on the cell, and the unit in the GUI's view of the board if it has one
+    private void put(int cell, short code) {
+        unitCodes[cell] = code;
+        if (board != null) {
+            board.put(Init.cellPositions.get(cell), Unit.fromCode(code));
+        }
+    }
+
+    // the index of the unit in the player's graveyard, or -1 if it is not there
+    private int deadSlot(int side, short code) {
+        for (int i = 0; i < numDead[side]; i++) {
+            if (deadCodes[side][i] == code) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -201,7 +389,7 @@ public class GameBoard implements Board {
      */
     @Override
     public int numActiveUnits(Color player) {
-        return player == Color.BLACK ? numBlackUnits : numWhiteUnits;
+        return numUnits[side(player)];
     }
 
     /**
@@ -212,7 +400,7 @@ public class GameBoard implements Board {
      */
     @Override
     public Set<Unit> getActiveUnits(Color player) {
-        return player == Color.BLACK ? blackUnits : whiteUnits;
+        return new UnitView(side(player), false);
     }
 
     /**
@@ -223,19 +411,39 @@ public class GameBoard implements Board {
      */
     @Override
     public boolean hasKing(Color player) {
-        return player == Color.BLACK ? blackKing : whiteKing;
+        return numKings[side(player)] > 0;
     }
 
     /**
-     * Gets a copy of the player's current graveyard
+     * Gets a read-only view of the player's current graveyard
      *
      * @param player the player's color
-     * @return the copy of the player's graveyard, returns the white player's graveyard if the player color
+     * @return the view of the player's graveyard, returns the white player's graveyard if the player color
      * is not black
      */
     @Override
     public Set<Unit> getGraveyard(Color player) {
-        return player == Color.BLACK ? blackGraveyard : whiteGraveyard;
+        return new UnitView(side(player), true);
+    }
+
+    /**
+     * Finds a unit of the given type in the player's graveyard, the unit to recruit for a recruitment chosen by the AI,
+     * which only names the type of its recruit
+     *
+     * @param player   the player's color
+     * @param unitType the type of unit to find
+     * @return the player's dead unit of that type with the lowest id, or null if there is none
+     */
+    public Unit getDeadUnit(Color player, UnitType unitType) {
+        int side = side(player);
+        Unit found = null;
+        for (int i = 0; i < numDead[side]; i++) {
+            Unit unit = Unit.fromCode(deadCodes[side][i]);
+            if (unit.unitType == unitType && (found == null || unit.id < found.id)) {
+                found = unit;
+            }
+        }
+        return found;
     }
 
     /**
@@ -249,7 +457,7 @@ public class GameBoard implements Board {
         int cities = 0;
 
         for (Position position : Init.cities) {
-            Unit city = board.get(position);
+            Unit city = get(position);
             if (city != null && city.color == player && city.unitType != UnitType.PAWN) {
                 cities += 1;
             }
@@ -258,5 +466,73 @@ public class GameBoard implements Board {
         return cities;
     }
 
+    /**
+     * Read-only set view over either the units on the board or the graveyard of a player
+     */
+    private class UnitView extends AbstractSet<Unit> {
+        private final int side;
+        private final boolean dead;
+
+        UnitView(int side, boolean dead) {
+            this.side = side;
+            this.dead = dead;
+        }
+
+        @Override
+        public Iterator<Unit> iterator() {
+            return new Iterator<Unit>() {
+                private int i = 0;
+                private int cell = nextCell(0);
+
+                @Override
+                public boolean hasNext() {
+                    return dead ? i < numDead[side] : cell < Init.NUM_CELLS;
+                }
+
+                @Override
+                public Unit next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (dead) {
+                        return Unit.fromCode(deadCodes[side][i++]);
+                    }
+                    Unit unit = Unit.fromCode(unitCodes[cell]);
+                    cell = nextCell(cell + 1);
+                    return unit;
+                }
+
+                // the first cell from the given one that holds one of the player's units
+                private int nextCell(int cell) {
+                    while (cell < Init.NUM_CELLS && (unitCodes[cell] == 0
+                            || side(Unit.fromCode(unitCodes[cell]).color) != side)) {
+                        cell++;
+                    }
+                    return cell;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return dead ? numDead[side] : numUnits[side];
+        }
 
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Unit)) {
+                return false;
+            }
+            Unit unit = (Unit) o;
+            if (dead) {
+                return deadSlot(side, unit.code) >= 0;
+            }
+            for (short code : unitCodes) {
+                if (code == unit.code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
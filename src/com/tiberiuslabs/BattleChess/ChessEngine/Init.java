@@ -19,43 +19,43 @@ public class Init {
     public static final Map<Position, Unit> defaultPositions =
             Collections.unmodifiableMap(new HashMap<Position, Unit>() {
                 {
-                    put(new Position(-4, -1), new Unit(UnitType.PAWN, Color.BLACK, 1));
-                    put(new Position(-3, -1), new Unit(UnitType.PAWN, Color.BLACK, 2));
-                    put(new Position(-2, -1), new Unit(UnitType.PAWN, Color.BLACK, 3));
-                    put(new Position(-1, -1), new Unit(UnitType.PAWN, Color.BLACK, 4));
-                    put(new Position(0, -1), new Unit(UnitType.PAWN, Color.BLACK, 5));
-                    put(new Position(1, -2), new Unit(UnitType.PAWN, Color.BLACK, 6));
-                    put(new Position(2, -3), new Unit(UnitType.PAWN, Color.BLACK, 7));
-                    put(new Position(3, -4), new Unit(UnitType.PAWN, Color.BLACK, 8));
-                    put(new Position(4, -5), new Unit(UnitType.PAWN, Color.BLACK, 9));
-                    put(new Position(-3, -2), new Unit(UnitType.ROOK, Color.BLACK, 1));
-                    put(new Position(3, -5), new Unit(UnitType.ROOK, Color.BLACK, 2));
-                    put(new Position(-2, -3), new Unit(UnitType.KNIGHT, Color.BLACK, 1));
-                    put(new Position(2, -5), new Unit(UnitType.KNIGHT, Color.BLACK, 2));
-                    put(new Position(-1, -4), new Unit(UnitType.KING, Color.BLACK, 1));
-                    put(new Position(1, -5), new Unit(UnitType.QUEEN, Color.BLACK, 0));
-                    put(new Position(0, -5), new Unit(UnitType.BISHOP, Color.BLACK, 1));
-                    put(new Position(0, -4), new Unit(UnitType.BISHOP, Color.BLACK, 2));
-                    put(new Position(0, -3), new Unit(UnitType.BISHOP, Color.BLACK, 3));
-
-                    put(new Position(4, 1), new Unit(UnitType.PAWN, Color.WHITE, 1));
-                    put(new Position(3, 1), new Unit(UnitType.PAWN, Color.WHITE, 2));
-                    put(new Position(2, 1), new Unit(UnitType.PAWN, Color.WHITE, 3));
-                    put(new Position(1, 1), new Unit(UnitType.PAWN, Color.WHITE, 4));
-                    put(new Position(0, 1), new Unit(UnitType.PAWN, Color.WHITE, 5));
-                    put(new Position(-1, 2), new Unit(UnitType.PAWN, Color.WHITE, 6));
-                    put(new Position(-2, 3), new Unit(UnitType.PAWN, Color.WHITE, 7));
-                    put(new Position(-3, 4), new Unit(UnitType.PAWN, Color.WHITE, 8));
-                    put(new Position(-4, 5), new Unit(UnitType.PAWN, Color.WHITE, 9));
-                    put(new Position(3, 2), new Unit(UnitType.ROOK, Color.WHITE, 1));
-                    put(new Position(-3, 5), new Unit(UnitType.ROOK, Color.WHITE, 2));
-                    put(new Position(2, 3), new Unit(UnitType.KNIGHT, Color.WHITE, 1));
-                    put(new Position(-2, 5), new Unit(UnitType.KNIGHT, Color.WHITE, 2));
-                    put(new Position(1, 4), new Unit(UnitType.KING, Color.WHITE, 1));
-                    put(new Position(-1, 5), new Unit(UnitType.QUEEN, Color.WHITE, 0));
-                    put(new Position(0, 5), new Unit(UnitType.BISHOP, Color.WHITE, 1));
-                    put(new Position(0, 4), new Unit(UnitType.BISHOP, Color.WHITE, 2));
-                    put(new Position(0, 3), new Unit(UnitType.BISHOP, Color.WHITE, 3));
+                    put(Position.of(-4, -1), Unit.of(UnitType.PAWN, Color.BLACK, 1));
+                    put(Position.of(-3, -1), Unit.of(UnitType.PAWN, Color.BLACK, 2));
+                    put(Position.of(-2, -1), Unit.of(UnitType.PAWN, Color.BLACK, 3));
+                    put(Position.of(-1, -1), Unit.of(UnitType.PAWN, Color.BLACK, 4));
+                    put(Position.of(0, -1), Unit.of(UnitType.PAWN, Color.BLACK, 5));
+                    put(Position.of(1, -2), Unit.of(UnitType.PAWN, Color.BLACK, 6));
+                    put(Position.of(2, -3), Unit.of(UnitType.PAWN, Color.BLACK, 7));
+                    put(Position.of(3, -4), Unit.of(UnitType.PAWN, Color.BLACK, 8));
+                    put(Position.of(4, -5), Unit.of(UnitType.PAWN, Color.BLACK, 9));
+                    put(Position.of(-3, -2), Unit.of(UnitType.ROOK, Color.BLACK, 1));
+                    put(Position.of(3, -5), Unit.of(UnitType.ROOK, Color.BLACK, 2));
+                    put(Position.of(-2, -3), Unit.of(UnitType.KNIGHT, Color.BLACK, 1));
+                    put(Position.of(2, -5), Unit.of(UnitType.KNIGHT, Color.BLACK, 2));
+                    put(Position.of(-1, -4), Unit.of(UnitType.KING, Color.BLACK, 1));
+                    put(Position.of(1, -5), Unit.of(UnitType.QUEEN, Color.BLACK, 0));
+                    put(Position.of(0, -5), Unit.of(UnitType.BISHOP, Color.BLACK, 1));
+                    put(Position.of(0, -4), Unit.of(UnitType.BISHOP, Color.BLACK, 2));
+                    put(Position.of(0, -3), Unit.of(UnitType.BISHOP, Color.BLACK, 3));
+
+                    put(Position.of(4, 1), Unit.of(UnitType.PAWN, Color.WHITE, 1));
+                    put(Position.of(3, 1), Unit.of(UnitType.PAWN, Color.WHITE, 2));
+                    put(Position.of(2, 1), Unit.of(UnitType.PAWN, Color.WHITE, 3));
+                    put(Position.of(1, 1), Unit.of(UnitType.PAWN, Color.WHITE, 4));
+                    put(Position.of(0, 1), Unit.of(UnitType.PAWN, Color.WHITE, 5));
+                    put(Position.of(-1, 2), Unit.of(UnitType.PAWN, Color.WHITE, 6));
+                    put(Position.of(-2, 3), Unit.of(UnitType.PAWN, Color.WHITE, 7));
+                    put(Position.of(-3, 4), Unit.of(UnitType.PAWN, Color.WHITE, 8));
+                    put(Position.of(-4, 5), Unit.of(UnitType.PAWN, Color.WHITE, 9));
+                    put(Position.of(3, 2), Unit.of(UnitType.ROOK, Color.WHITE, 1));
+                    put(Position.of(-3, 5), Unit.of(UnitType.ROOK, Color.WHITE, 2));
+                    put(Position.of(2, 3), Unit.of(UnitType.KNIGHT, Color.WHITE, 1));
+                    put(Position.of(-2, 5), Unit.of(UnitType.KNIGHT, Color.WHITE, 2));
+                    put(Position.of(1, 4), Unit.of(UnitType.KING, Color.WHITE, 1));
+                    put(Position.of(-1, 5), Unit.of(UnitType.QUEEN, Color.WHITE, 0));
+                    put(Position.of(0, 5), Unit.of(UnitType.BISHOP, Color.WHITE, 1));
+                    put(Position.of(0, 4), Unit.of(UnitType.BISHOP, Color.WHITE, 2));
+                    put(Position.of(0, 3), Unit.of(UnitType.BISHOP, Color.WHITE, 3));
                 }
             });
 
@@ -72,59 +72,59 @@ public class Init {
                                 for (int i = 0; i < 24; i++)
                                     adjacent.add(i, null);
 
-                                Position pos = new Position(q, r);
+                                Position pos = Position.of(q, r);
 
                                 // first level cardinal adjacencies
                                 if (Rules.inBounds(q, r - 1))
-                                    adjacent.set(0, new Position(q, r - 1));
+                                    adjacent.set(0, Position.of(q, r - 1));
                                 if (Rules.inBounds(q + 1, r - 1))
-                                    adjacent.set(1, new Position(q + 1, r - 1));
+                                    adjacent.set(1, Position.of(q + 1, r - 1));
                                 if (Rules.inBounds(q + 1, r))
-                                    adjacent.set(2, new Position(q + 1, r));
+                                    adjacent.set(2, Position.of(q + 1, r));
                                 if (Rules.inBounds(q, r + 1))
-                                    adjacent.set(3, new Position(q, r + 1));
+                                    adjacent.set(3, Position.of(q, r + 1));
                                 if (Rules.inBounds(q - 1, r + 1))
-                                    adjacent.set(4, new Position(q - 1, r + 1));
+                                    adjacent.set(4, Position.of(q - 1, r + 1));
                                 if (Rules.inBounds(q - 1, r))
-                                    adjacent.set(5, new Position(q - 1, r));
+                                    adjacent.set(5, Position.of(q - 1, r));
                                 // first level vertical adjacencies
                                 if (Rules.inBounds(q - 1, r - 1))
-                                    adjacent.set(6, new Position(q - 1, r - 1));
+                                    adjacent.set(6, Position.of(q - 1, r - 1));
                                 if (Rules.inBounds(q + 1, r - 2))
-                                    adjacent.set(7, new Position(q + 1, r - 2));
+                                    adjacent.set(7, Position.of(q + 1, r - 2));
                                 if (Rules.inBounds(q + 2, r - 1))
-                                    adjacent.set(8, new Position(q + 2, r - 1));
+                                    adjacent.set(8, Position.of(q + 2, r - 1));
                                 if (Rules.inBounds(q + 1, r + 1))
-                                    adjacent.set(9, new Position(q + 1, r + 1));
+                                    adjacent.set(9, Position.of(q + 1, r + 1));
                                 if (Rules.inBounds(q - 1, r + 2))
-                                    adjacent.set(10, new Position(q - 1, r + 2));
+                                    adjacent.set(10, Position.of(q - 1, r + 2));
                                 if (Rules.inBounds(q - 2, r + 1))
-                                    adjacent.set(11, new Position(q - 2, r + 1));
+                                    adjacent.set(11, Position.of(q - 2, r + 1));
                                 // all jump adjacencies
                                 if (Rules.inBounds(q - 2, r - 1))
-                                    adjacent.set(12, new Position(q - 2, r - 1));
+                                    adjacent.set(12, Position.of(q - 2, r - 1));
                                 if (Rules.inBounds(q - 1, r - 2))
-                                    adjacent.set(13, new Position(q - 1, r - 2));
+                                    adjacent.set(13, Position.of(q - 1, r - 2));
                                 if (Rules.inBounds(q + 1, r - 3))
-                                    adjacent.set(14, new Position(q + 1, r - 3));
+                                    adjacent.set(14, Position.of(q + 1, r - 3));
                                 if (Rules.inBounds(q + 2, r - 3))
-                                    adjacent.set(15, new Position(q + 2, r - 3));
+                                    adjacent.set(15, Position.of(q + 2, r - 3));
                                 if (Rules.inBounds(q + 3, r - 2))
-                                    adjacent.set(16, new Position(q + 3, r - 2));
+                                    adjacent.set(16, Position.of(q + 3, r - 2));
                                 if (Rules.inBounds(q + 3, r - 1))
-                                    adjacent.set(17, new Position(q + 3, r - 1));
+                                    adjacent.set(17, Position.of(q + 3, r - 1));
                                 if (Rules.inBounds(q + 2, r + 1))
-                                    adjacent.set(18, new Position(q + 2, r + 1));
+                                    adjacent.set(18, Position.of(q + 2, r + 1));
                                 if (Rules.inBounds(q + 1, r + 2))
-                                    adjacent.set(19, new Position(q + 1, r + 2));
+                                    adjacent.set(19, Position.of(q + 1, r + 2));
                                 if (Rules.inBounds(q - 1, r + 3))
-                                    adjacent.set(20, new Position(q - 1, r + 3));
+                                    adjacent.set(20, Position.of(q - 1, r + 3));
                                 if (Rules.inBounds(q - 2, r + 3))
-                                    adjacent.set(21, new Position(q - 2, r + 3));
+                                    adjacent.set(21, Position.of(q - 2, r + 3));
                                 if (Rules.inBounds(q - 3, r + 2))
-                                    adjacent.set(22, new Position(q - 3, r + 2));
+                                    adjacent.set(22, Position.of(q - 3, r + 2));
                                 if (Rules.inBounds(q - 3, r + 1))
-                                    adjacent.set(23, new Position(q - 3, r + 1));
+                                    adjacent.set(23, Position.of(q - 3, r + 1));
 
                                 put(pos, Collections.unmodifiableList(adjacent));
                             }
@@ -138,12 +138,12 @@ public class Init {
      */
     public static final List<Position> cities = Collections.unmodifiableList(new ArrayList<Position>() {
         {
-            add(new Position(0, -5));
-            add(new Position(0, 5));
-            add(new Position(-5, 0));
-            add(new Position(5, -5));
-            add(new Position(5, 0));
-            add(new Position(-5, 5));
+            add(Position.of(0, -5));
+            add(Position.of(0, 5));
+            add(Position.of(-5, 0));
+            add(Position.of(5, -5));
+            add(Position.of(5, 0));
+            add(Position.of(-5, 5));
         }
     });
 
@@ -159,16 +159,16 @@ public class Init {
                     if (Rules.inBounds(x, y)) {
                         switch (color) {
                             case 0:
-                                put(new Position(x, y), Color.WHITE);
+                                put(Position.of(x, y), Color.WHITE);
                                 break;
                             case 1:
-                                put(new Position(x, y), Color.GREY);
+                                put(Position.of(x, y), Color.GREY);
                                 break;
                             case 2:
-                                put(new Position(x, y), Color.BLACK);
+                                put(Position.of(x, y), Color.BLACK);
                                 break;
                             default:
-                                put(new Position(x, y), Color.NEUTRAL);
+                                put(Position.of(x, y), Color.NEUTRAL);
                                 break;
                         }
                     }
@@ -179,6 +179,61 @@ public class Init {
         }
     });
 
+    /**
+     * The number of tiles on the board
+     */
+    public static final int NUM_CELLS = 91;
+
+    /**
+     * An immutable list of all 91 tile positions, the index of a position in this list is its cell number, see
+     * Position.cell
+     */
+    public static final List<Position> cellPositions = Collections.unmodifiableList(new ArrayList<Position>(NUM_CELLS) {
+        {
+            for (int x = -5; x <= 5; x++) {
+                for (int y = -5; y <= 5; y++) {
+                    if (Rules.inBounds(x, y)) {
+                        add(Position.of(x, y));
+                    }
+                }
+            }
+        }
+    });
+
+    /**
+     * A lookup of (x + 5) * 11 + (y + 5) -> cell number, -1 for the corners of the 11x11 grid that are not on the board
+     */
+    private static final int[] cellIndices = new int[11 * 11];
+
+    static {
+        Arrays.fill(cellIndices, -1);
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            Position pos = cellPositions.get(cell);
+            cellIndices[(pos.x() + 5) * 11 + pos.y() + 5] = cell;
+        }
+    }
+
+    /**
+     * Get the cell number of the tile at (x,y)
+     *
+     * @param x the column coordinate
+     * @param y the row coordinate
+     * @return the cell number in [0, NUM_CELLS), or -1 if (x,y) is not inBounds
+     */
+    public static int cellIndex(int x, int y) {
+        return Rules.inBounds(x, y) ? cellIndices[(x + 5) * 11 + y + 5] : -1;
+    }
+
+    /**
+     * Get the cell number of the tile at the given position. Performs null safety check
+     *
+     * @param pos the position of the tile
+     * @return the cell number in [0, NUM_CELLS), or -1 if pos is null or not inBounds
+     */
+    public static int cellIndex(Position pos) {
+        return pos == null ? -1 : pos.cell();
+    }
+
     /**
      * Constructs a map that has all 91 tile positions mapped to the unit that is at that tile or null if the tile is empty
      *
@@ -189,8 +244,8 @@ public class Init {
 
         for (int x = -5; x <= 5; x++) {
             for (int y = -5; y <= 5; y++) {
-                Position pos = new Position(x, y);
-                if (Rules.inBounds(pos)) {
+                if (Rules.inBounds(x, y)) {
+                    Position pos = Position.of(x, y);
                     board.put(pos, defaultPositions.get(pos));
                 }
             }
@@ -0,0 +1,192 @@
+package com.tiberiuslabs.BattleChess.ChessEngine;
+
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precomputed movement tables indexed by cell number, derived once from Init.moveAdjacencies so that move generation
+ * does not have to look up Positions in a map for every step. <p/>
+ * Directions are numbered as in Init.moveAdjacencies: 0-5 are the cardinal directions, 6-11 the vertical directions
+ * and 12-23 the jumps. Per-player tables are indexed by player, 0 for white and 1 for black. <p/>
+ * The arrays returned by these methods are shared and must not be modified.
+ *
+ * @see com.tiberiuslabs.BattleChess.ChessEngine.Init#cellIndex(int, int)
+ */
+public final class MoveTables {
+    private static final int[][][] rays = new int[Init.NUM_CELLS][12][];
+    private static final int[][] knightJumps = new int[Init.NUM_CELLS][];
+    private static final int[][] kingSteps = new int[Init.NUM_CELLS][];
+    private static final int[][] pawnPushes = new int[2][Init.NUM_CELLS];
+    private static final int[][] pawnJumps = new int[2][Init.NUM_CELLS];
+    private static final int[][][] pawnAttacks = new int[2][Init.NUM_CELLS][];
+    private static final Unit[] homeUnits = new Unit[Init.NUM_CELLS];
+    private static final int[] recruitCells;
+
+    // the direction each player's pawns move in, and the directions they attack in
+    private static final int[] PAWN_PUSH_DIRS = {0, 3};
+    private static final int[][] PAWN_ATTACK_DIRS = {{5, 1}, {2, 4}};
+
+    static {
+        for (int cell = 0; cell < Init.NUM_CELLS; cell++) {
+            Position pos = Init.cellPositions.get(cell);
+            for (int dir = 0; dir < 12; dir++) {
+                List<Integer> ray = new ArrayList<>();
+                for (int next = step(cell, dir); next >= 0; next = step(next, dir)) {
+                    ray.add(next);
+                }
+                rays[cell][dir] = toArray(ray);
+            }
+            knightJumps[cell] = steps(cell, 12, 24);
+            kingSteps[cell] = steps(cell, 0, 12);
+            homeUnits[cell] = Init.defaultPositions.get(pos);
+
+            for (int player = 0; player < 2; player++) {
+                int front = step(cell, PAWN_PUSH_DIRS[player]);
+                pawnPushes[player][cell] = front;
+
+                // only a pawn on one of its player's start cells may move two tiles
+                Unit home = homeUnits[cell];
+                boolean start = home != null && player(home.color) == player;
+                pawnJumps[player][cell] = start && front >= 0 ? step(front, PAWN_PUSH_DIRS[player]) : -1;
+
+                List<Integer> attacks = new ArrayList<>();
+                for (int dir : PAWN_ATTACK_DIRS[player]) {
+                    if (step(cell, dir) >= 0) {
+                        attacks.add(step(cell, dir));
+                    }
+                }
+                pawnAttacks[player][cell] = toArray(attacks);
+            }
+        }
+
+        Set<Integer> cells = new LinkedHashSet<>();
+        for (Position city : Init.cities) {
+            for (int next : steps(Init.cellIndex(city), 0, 6)) {
+                cells.add(next);
+            }
+        }
+        recruitCells = toArray(cells);
+    }
+
+    private MoveTables() {
+    }
+
+    /**
+     * Get the index used by the per-player tables for the given color
+     *
+     * @param color the player's color
+     * @return 1 for black, 0 otherwise
+     */
+    public static int player(Color color) {
+        return color == Color.BLACK ? 1 : 0;
+    }
+
+    /**
+     * Get the cells along a cardinal or vertical direction from a cell, nearest first, up to the edge of the board
+     *
+     * @param cell the cell number to start from
+     * @param dir  the direction, in [0, 12)
+     * @return the cell numbers of the ray, empty if the cell is on the edge of the board in that direction
+     */
+    public static int[] ray(int cell, int dir) {
+        return rays[cell][dir];
+    }
+
+    /**
+     * Get the cells a KNIGHT can jump to from a cell
+     *
+     * @param cell the cell number to jump from
+     * @return the cell numbers of the jumps that stay on the board
+     */
+    public static int[] knightJumps(int cell) {
+        return knightJumps[cell];
+    }
+
+    /**
+     * Get the cells a KING can step to from a cell, the first cell of each cardinal and vertical direction
+     *
+     * @param cell the cell number to step from
+     * @return the cell numbers of the steps that stay on the board
+     */
+    public static int[] kingSteps(int cell) {
+        return kingSteps[cell];
+    }
+
+    /**
+     * Get the cell in front of a PAWN
+     *
+     * @param player the player index of the pawn
+     * @param cell   the cell number of the pawn
+     * @return the cell number one tile forward, or -1 if that is off the board
+     */
+    public static int pawnPush(int player, int cell) {
+        return pawnPushes[player][cell];
+    }
+
+    /**
+     * Get the cell two tiles in front of a PAWN on one of its player's start cells
+     *
+     * @param player the player index of the pawn
+     * @param cell   the cell number of the pawn
+     * @return the cell number two tiles forward, or -1 if the cell is not a start cell of one of the player's pawns
+     * @see #homeUnit(int)
+     */
+    public static int pawnJump(int player, int cell) {
+        return pawnJumps[player][cell];
+    }
+
+    /**
+     * Get the cells a PAWN can attack from a cell
+     *
+     * @param player the player index of the pawn
+     * @param cell   the cell number of the pawn
+     * @return the cell numbers of the attacks that stay on the board
+     */
+    public static int[] pawnAttacks(int player, int cell) {
+        return pawnAttacks[player][cell];
+    }
+
+    /**
+     * Get the unit that starts the game on a cell, a PAWN may only move two tiles from its own start cell
+     *
+     * @param cell the cell number
+     * @return the unit from Init.defaultPositions, or null if the cell starts empty
+     */
+    public static Unit homeUnit(int cell) {
+        return homeUnits[cell];
+    }
+
+    /**
+     * Get the cells that a recruit may be placed on, the cardinal neighbours of all six cities
+     *
+     * @return the cell numbers of the recruitment cells
+     */
+    public static int[] recruitCells() {
+        return recruitCells;
+    }
+
+    private static int step(int cell, int dir) {
+        return Init.cellIndex(Init.moveAdjacencies.get(Init.cellPositions.get(cell)).get(dir));
+    }
+
+    private static int[] steps(int cell, int firstDir, int lastDir) {
+        List<Integer> cells = new ArrayList<>();
+        for (int dir = firstDir; dir < lastDir; dir++) {
+            if (step(cell, dir) >= 0) {
+                cells.add(step(cell, dir));
+            }
+        }
+        return toArray(cells);
+    }
+
+    private static int[] toArray(Collection<Integer> cells) {
+        return cells.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
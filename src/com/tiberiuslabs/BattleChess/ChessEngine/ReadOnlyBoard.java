@@ -0,0 +1,31 @@
+package com.tiberiuslabs.BattleChess.ChessEngine;
+
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.Unit;
+
+import java.util.Set;
+
+/**
+ * The read side of Board, the functions that the rules, the AI and the GUI use to look at the state of the game
+ * without changing it
+ *
+ * @author Amandeep Gill
+ * @see com.tiberiuslabs.BattleChess.ChessEngine.BoardSnapshot
+ */
+public interface ReadOnlyBoard {
+    public Unit get(Position position);
+
+    public int numActiveUnits(Color player);
+
+    public Set<Unit> getActiveUnits(Color player);
+
+    public boolean hasKing(Color player);
+
+    public Set<Unit> getGraveyard(Color player);
+
+    public int numCitiesHeld(Color player);
+
+    public Unit[][] getArrayBoard();
+
+}
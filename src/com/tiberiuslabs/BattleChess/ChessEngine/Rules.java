@@ -4,13 +4,9 @@ import com.sun.istack.internal.NotNull;
 import com.tiberiuslabs.BattleChess.Types.Color;
 import com.tiberiuslabs.BattleChess.Types.Position;
 import com.tiberiuslabs.BattleChess.Types.Unit;
-import com.tiberiuslabs.BattleChess.Types.UnitType;
-import com.tiberiuslabs.Collections.Pair;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static java.lang.Math.abs;
 
@@ -40,7 +36,7 @@ public final class Rules {
      * @return true if the location is valid, false otherwise
      */
     public static boolean inBounds(Position pos) {
-        return pos != null && inBounds(pos.x(), pos.y());
+        return pos != null && pos.cell() >= 0;
     }
 
     /**
@@ -53,7 +49,7 @@ public final class Rules {
      * @param board    the current state of the game board, must not be null
      * @return true if the move is valid, false otherwise
      */
-    public static boolean isValidMove(Unit unit, Position startPos, Position finalPos, Board board) {
+    public static boolean isValidMove(Unit unit, Position startPos, Position finalPos, ReadOnlyBoard board) {
         return getValidMoves(unit, startPos, board).contains(finalPos);
     }
 
@@ -66,29 +62,33 @@ public final class Rules {
      * @param board    the current state of the game board, must not be null
      * @return the set containing all valid moves and attacks for the given unit at the given startPos
      */
-    public static Set<Position> getValidMoves(@NotNull Unit unit, @NotNull Position startPos, @NotNull Board board) {
-        if (!inBounds(startPos)) {
+    public static Set<Position> getValidMoves(@NotNull Unit unit, @NotNull Position startPos, @NotNull ReadOnlyBoard board) {
+        int start = Init.cellIndex(startPos);
+        if (start < 0) {
             return new HashSet<>();
         }
 
         switch (unit.unitType) {
             case PAWN: {
-                return getValidPawnMoves(unit, startPos, board);
+                return getValidPawnMoves(unit, start, board);
             }
             case ROOK: {
-                return getValidRookMoves(unit, startPos, board);
+                // each of the six cardinal directions
+                return getValidSlidingMoves(unit, start, 0, 6, board);
             }
             case BISHOP: {
-                return getValidBishopMoves(unit, startPos, board);
+                // each of the six vertical directions
+                return getValidSlidingMoves(unit, start, 6, 12, board);
             }
             case KNIGHT: {
-                return getValidKnightMoves(unit, startPos, board);
+                return getValidSteppingMoves(unit, MoveTables.knightJumps(start), board);
             }
             case QUEEN: {
-                return getValidQueenMoves(unit, startPos, board);
+                // the six cardinal and six vertical directions
+                return getValidSlidingMoves(unit, start, 0, 12, board);
             }
             case KING: {
-                return getValidKingMoves(unit, startPos, board);
+                return getValidSteppingMoves(unit, MoveTables.kingSteps(start), board);
             }
             default: {
                 return new HashSet<>();
@@ -96,173 +96,72 @@ public final class Rules {
         }
     }
 
-    private static Set<Position> getValidPawnMoves(Unit unit, Position startPos, Board board) {
+    private static Set<Position> getValidPawnMoves(Unit unit, int start, ReadOnlyBoard board) {
         Set<Position> moves = new HashSet<>();
         // black may only move in the positive y direction, white in the negative direction
-        int dir = unit.color == Color.BLACK ? 1 : -1;
+        int player = MoveTables.player(unit.color);
 
         // check if the position in front of the footman is inBounds and empty
-        Position front = new Position(startPos.x(), startPos.y() + dir);
-        if (inBounds(front) && board.get(front) == null) {
-            moves.add(front);
-        }
-        // check if the footman is at a default position (and is allowed a double move)
-        // and that both the front and jump positions are not blocked
-        Position jump = new Position(front.x(), front.y() + dir);
-        if (unit.equals(Init.defaultPositions.get(startPos)) && board.get(front) == null && board.get(jump) == null) {
-            moves.add(jump);
-        }
-        // special check for the PAWN since they do not attack along their move paths
-        if (unit.unitType == UnitType.PAWN) {
-            Position attack1 = new Position(startPos.x() + dir, startPos.y());
-            if (inBounds(attack1)) {
-                Unit defender = board.get(attack1);
-                if (defender != null && defender.color != unit.color) {
-                    moves.add(attack1);
-                }
+        int front = MoveTables.pawnPush(player, start);
+        if (front >= 0 && board.get(Init.cellPositions.get(front)) == null) {
+            moves.add(Init.cellPositions.get(front));
+
+            // check if the footman is at its default position (and is allowed a double move)
+            // and that the jump position is not blocked as well
+            int jump = MoveTables.pawnJump(player, start);
+            if (jump >= 0 && unit.equals(MoveTables.homeUnit(start))
+                    && board.get(Init.cellPositions.get(jump)) == null) {
+                moves.add(Init.cellPositions.get(jump));
             }
+        }
 
-            Position attack2 = new Position(startPos.x() - dir, startPos.y() + dir);
-            if (inBounds(attack2)) {
-                Unit defender = board.get(attack2);
-                if (defender != null && defender.color != unit.color) {
-                    moves.add(attack2);
-                }
+        // the PAWN does not attack along its move path
+        for (int attack : MoveTables.pawnAttacks(player, start)) {
+            Unit defender = board.get(Init.cellPositions.get(attack));
+            if (defender != null && defender.color != unit.color) {
+                moves.add(Init.cellPositions.get(attack));
             }
         }
 
         return moves;
     }
 
-    private static Set<Position> getValidRookMoves(Unit unit, Position startPos, Board board) {
+    private static Set<Position> getValidSlidingMoves(Unit unit, int start, int firstDir, int lastDir, ReadOnlyBoard board) {
         Set<Position> moves = new HashSet<>();
 
-        // depth-first search each of the six cardinal directions for open positions or enemy units
-        for (int i = 0; i < 6; i++) {
-            Position currPos = Init.moveAdjacencies.get(startPos).get(i);
-
-            // only check until the edge of the board has been reached
-            while (inBounds(currPos)) {
+        // depth-first search each direction for open positions or enemy units
+        for (int dir = firstDir; dir < lastDir; dir++) {
+            // the ray stops at the edge of the board
+            for (int cell : MoveTables.ray(start, dir)) {
+                Position currPos = Init.cellPositions.get(cell);
                 Unit other = board.get(currPos);
                 if (other == null) {
                     // this tile is empty
-                    moves.add(new Position(currPos));
+                    moves.add(currPos);
                 } else if (unit.color != other.color) {
                     // this tile is occupied by an enemy unit. add the pos and move to the next direction
-                    moves.add(new Position(currPos));
+                    moves.add(currPos);
                     break;
                 } else {
                     // a friendly unit is blocking this tile, move to the next direction
                     break;
                 }
-                currPos = Init.moveAdjacencies.get(currPos).get(i);
-            }
-        }
-
-        return moves;
-    }
-
-
-    private static Set<Position> getValidBishopMoves(Unit unit, Position startPos, Board board) {
-        Set<Position> moves = new HashSet<>();
-
-        // depth-first search each of the six vertical directions for open positions or enemy units
-        for (int i = 6; i < 12; i++) {
-            Position currPos = Init.moveAdjacencies.get(startPos).get(i);
-
-            // only check until the edge of the board has been reached
-            while (inBounds(currPos)) {
-                Unit other = board.get(currPos);
-                if (other == null) {
-                    // this tile is empty and inBounds
-                    moves.add(new Position(currPos));
-                } else if (other.color != unit.color) {
-                    // this tile is occupied by an enemy unit, add the pos and move to the next direction
-                    moves.add(new Position(currPos));
-                    break;
-                } else {
-                    // this tile is blocked by a friendly unit, move to the next direction
-                    break;
-                }
-                currPos = Init.moveAdjacencies.get(currPos).get(i);
-            }
-        }
-
-        return moves;
-    }
-
-
-    private static Set<Position> getValidKnightMoves(Unit unit, Position startPos, Board board) {
-        Set<Position> moves = new HashSet<>();
-
-        // check each of the single-move 'jump' adjacencies for the final position
-        List<Position> adjacencies = Init.moveAdjacencies.get(startPos);
-        for (int i = 12; i < 24; i++) {
-            Position pos = adjacencies.get(i);
-            Unit other = board.get(pos);
-
-            if (inBounds(pos)) {
-                if (other == null) {
-                    // this tile is empty and inBounds, add pos to moves
-                    moves.add(pos);
-                } else if (other.color != unit.color) {
-                    // this tile is inBounds and occupied by an enemy unit
-                    moves.add(pos);
-                }
-            }
-        }
-
-        return moves;
-    }
-
-
-    private static Set<Position> getValidQueenMoves(Unit unit, Position startPos, Board board) {
-        Set<Position> moves = new HashSet<>();
-
-        // depth-first search on the six cardinal and vertical directions for the final position
-        for (int i = 0; i < 12; i++) {
-            Position currPos = Init.moveAdjacencies.get(startPos).get(i);
-
-            // only check until the edge of the board has been reached
-            while (inBounds(currPos)) {
-                Unit other = board.get(currPos);
-                if (other == null) {
-                    // this tile is empty and inBounds
-                    moves.add(new Position(currPos));
-                } else if (other.color != unit.color) {
-                    // this tile is occupied by an enemy unit, add the pos and move to the next direction
-                    moves.add(new Position(currPos));
-                    break;
-                } else {
-                    // this tile is blocked by a friendly unit, move to the next direction
-                    break;
-                }
-                currPos = Init.moveAdjacencies.get(currPos).get(i);
-
             }
         }
 
         return moves;
     }
 
-
-    private static Set<Position> getValidKingMoves(Unit unit, Position startPos, Board board) {
+    private static Set<Position> getValidSteppingMoves(Unit unit, int[] targets, ReadOnlyBoard board) {
         Set<Position> moves = new HashSet<>();
 
-        // check each of the single-move cardinal and vertical adjacencies for the final position
-        List<Position> adjacencies = Init.moveAdjacencies.get(startPos);
-        for (int i = 0; i < 12; i++) {
-            Position pos = adjacencies.get(i);
+        // check each of the single-move adjacencies for the final position, the targets are all inBounds
+        for (int cell : targets) {
+            Position pos = Init.cellPositions.get(cell);
             Unit other = board.get(pos);
-
-            if (inBounds(pos)) {
-                if (other == null) {
-                    // this tile is empty and inBounds, add pos to moves
-                    moves.add(pos);
-                } else if (other.color != unit.color) {
-                    // this tile is inBounds and occupied by an enemy unit
-                    moves.add(pos);
-                }
+            if (other == null || other.color != unit.color) {
+                // this tile is empty or occupied by an enemy unit
+                moves.add(pos);
             }
         }
 
@@ -290,22 +189,22 @@ public final class Rules {
      * @param board    the current state of the game board, must not be null
      * @return true if the player can recruit the unit, false otherwise
      */
-    public static boolean canRecruitUnit(Color player, Unit recruit, Position position, Board board) {
+    public static boolean canRecruitUnit(Color player, Unit recruit, Position position, ReadOnlyBoard board) {
         return getValidRecruitments(player, recruit, board).contains(position);
     }
 
-    public static Set<Position> getValidRecruitments(Color player, Unit recruit, Board board) {
+    public static Set<Position> getValidRecruitments(Color player, Unit recruit, ReadOnlyBoard board) {
         Set<Position> positions = new HashSet<>();
 
         Unit capitol = board.get(Init.cities.get(player == Color.BLACK ? 0 : 1));
         if (board.hasKing(player) && board.getGraveyard(player).contains(recruit) &&
                 capitol != null && capitol.color == player && board.numCitiesHeld(player) >= 3) {
-            for (Position city : Init.cities) {
-                positions.addAll(Init.moveAdjacencies.get(city)
-                        .subList(0, 6).parallelStream()
-                        .filter(adjacent -> adjacent != null && board.get(adjacent) == null)
-                        .map(adjacent -> adjacent)
-                        .collect(Collectors.toList()));
+            // the empty tiles next to any of the cities
+            for (int cell : MoveTables.recruitCells()) {
+                Position adjacent = Init.cellPositions.get(cell);
+                if (board.get(adjacent) == null) {
+                    positions.add(adjacent);
+                }
             }
         }
 
@@ -318,11 +217,12 @@ public final class Rules {
      * @param board the current state of the game board, must not be null
      * @return the color of the winning player, NEUTRAL if neither player has won
      */
-    public static Color winner(Board board) {
-        Pair<Unit, Unit> capitols = new Pair<>(board.get(Init.cities.get(0)), board.get(Init.cities.get(1)));
-        if (capitols.fst != null && capitols.snd != null) {
-            if (capitols.fst.color == capitols.snd.color) {
-                return capitols.fst.color;
+    public static Color winner(ReadOnlyBoard board) {
+        Unit blackCapitol = board.get(Init.cities.get(0));
+        Unit whiteCapitol = board.get(Init.cities.get(1));
+        if (blackCapitol != null && whiteCapitol != null) {
+            if (blackCapitol.color == whiteCapitol.color) {
+                return blackCapitol.color;
             }
         }
         if (board.numActiveUnits(Color.BLACK) == 0) {
@@ -5,13 +5,18 @@ import com.tiberiuslabs.BattleChess.AI.AIEngine;
 import com.tiberiuslabs.BattleChess.ChessEngine.*;
 import com.tiberiuslabs.BattleChess.Types.AIDifficulty;
 import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
 import com.tiberiuslabs.BattleChess.Types.Position;
 import com.tiberiuslabs.BattleChess.Types.Unit;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Interfaces with the player to make changes to the game state <ul> <li>makes and verifies moves/recruitment <li>gets
@@ -26,6 +31,10 @@ public class GameEngine {
     private Color currentPlayer;
     private boolean initialized;
     private GameEngineCallbacks.WinningEvent winningEvent;
+    private GameEngineCallbacks.AIProgressEvent aiProgressEvent;
+    private GameEngineCallbacks.AIMoveEvent aiMoveEvent;
+    // the AI's move while it is being searched for
+    private CompletableFuture<Move> aiMove;
 
     /**
      * Creates an uninitialized version of the game, must be later initialized with reset()
@@ -65,6 +74,13 @@ public class GameEngine {
      */
     public void reset(Color playerColor, AIDifficulty difficulty) {
         this.playerColor = playerColor;
+        if (aiMove != null) {
+            aiMove.cancel(false);
+            aiMove = null;
+        }
+        if (aiEngine != null) {
+            aiEngine.shutdown();
+        }
         this.aiEngine = new AIEngine(difficulty, playerColor == Color.BLACK ? Color.WHITE : Color.BLACK);
         board = new GameBoard();
         currentPlayer = Color.WHITE;
@@ -72,34 +88,81 @@ public class GameEngine {
     }
 
     /**
-     * Updates the game state and gets the AI makeMove if it is the AI's turn
+     * Updates the game state and starts the search for the AI's makeMove if it is the AI's turn. The search runs in
+     * the background, its move is made on the JavaFX application thread once it is found, and the AI then ponders
+     * until the player's move is made
      */
     public void update() {
-        if (currentPlayer == aiEngine.getAIColor()) {
-            Move move = null;
-            try {
-                move = aiEngine.getAIMove(board);
-            } catch (AI.NoMoveException e) {
-                // call winner function
+        if (!checkWinner() && currentPlayer == aiEngine.getAIColor() && aiMove == null) {
+            CompletableFuture<Move> future = aiEngine.getAIMoveAsync(board, (depth, bestMove, score) -> {
+                if (aiProgressEvent != null) {
+                    Platform.runLater(() -> aiProgressEvent.aiProgress(depth, bestMove));
+                }
+            });
+            aiMove = future;
+            future.whenComplete((move, error) -> Platform.runLater(() -> makeAIMove(future, move, error)));
+        }
+    }
+
+    // make the AI's move once it has been found, unless the game has been reset since the search started
+    private void makeAIMove(CompletableFuture<Move> future, Move move, Throwable error) {
+        if (future != aiMove) {
+            return;
+        }
+        aiMove = null;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                return;
+            } else if (cause instanceof AI.NoMoveException) {
+                // a player who cannot move loses
+                winningEvent.haveWinner(true);
+                return;
             }
-            if (move != null) {
-                board.makeMove(move);
-                currentPlayer = playerColor;
+            // the game cannot go on without the AI's move, let the uncaught exception handler report it
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+        }
+        if (move != null) {
+            if (move.moveType == MoveType.REC) {
+                // the AI only chooses the type of its recruit, any of its dead units of that type will do
+                move = new Move(board.getDeadUnit(move.attacker.color, move.attacker.unitType), null, null,
+                        move.finalPos, MoveType.REC);
             }
+            board.makeMove(move);
+            currentPlayer = playerColor;
+            if (aiMoveEvent != null) {
+                aiMoveEvent.aiMoved(move);
+            }
+            // think about the AI's next move while the player thinks about theirs
+            aiEngine.startPondering(board);
         }
+        checkWinner();
+    }
 
+    // tell the winning event if the game has been won, and return true if it has
+    private boolean checkWinner() {
         switch (Rules.winner(board)) {
             case WHITE:
                 winningEvent.haveWinner(playerColor == Color.WHITE);
-                break;
+                return true;
             case BLACK:
                 winningEvent.haveWinner(playerColor == Color.BLACK);
-                break;
+                return true;
             default:
-                break;
+                return false;
         }
     }
 
+    /**
+     * Checks if the AI is searching for its makeMove, the player cannot move until it has finished
+     *
+     * @return true if the AI is searching for its move
+     */
+    public boolean isAIThinking() {
+        return aiMove != null;
+    }
+
     /**
      * Test to see if the player's makeMove is allowed
      *
@@ -110,7 +173,9 @@ public class GameEngine {
      */
     public boolean testMove(Unit unit, Position startPos, Position finalPos) {
         if (currentPlayer == aiEngine.getAIColor()) {
+            // the AI has not made its move yet
             update();
+            return false;
         }
         // return false if the player is attempting to makeMove the AI's unit, or if the final position is not in bounds
         if (unit.color == playerColor && Rules.inBounds(finalPos)) {
@@ -232,4 +297,12 @@ public class GameEngine {
     public void setWinningEvent(GameEngineCallbacks.WinningEvent winningEvent) {
         this.winningEvent = winningEvent;
     }
+
+    public void setAIProgressEvent(GameEngineCallbacks.AIProgressEvent aiProgressEvent) {
+        this.aiProgressEvent = aiProgressEvent;
+    }
+
+    public void setAIMoveEvent(GameEngineCallbacks.AIMoveEvent aiMoveEvent) {
+        this.aiMoveEvent = aiMoveEvent;
+    }
 }
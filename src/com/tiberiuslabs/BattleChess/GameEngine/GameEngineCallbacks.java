@@ -2,6 +2,7 @@ package com.tiberiuslabs.BattleChess.GameEngine;
 
 import com.sun.javafx.collections.ObservableMapWrapper;
 import com.sun.javafx.collections.ObservableSetWrapper;
+import com.tiberiuslabs.BattleChess.ChessEngine.Move;
 import com.tiberiuslabs.BattleChess.ChessEngine.Rules;
 import com.tiberiuslabs.BattleChess.Gui.GuiBoard;
 import com.tiberiuslabs.BattleChess.Gui.RecruitMenu;
@@ -11,6 +12,7 @@ import javafx.collections.*;
 import javafx.scene.Node;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,13 +35,15 @@ public class GameEngineCallbacks implements GuiBoard.BoardCallback, RecruitMenu.
 
     public GameEngineCallbacks(AddNodeCallback addNodeCallback) {
         this.addNodeCallback = addNodeCallback;
+        // the AI's captures can be recruited on the player's next turn
+        gameEngine.setAIMoveEvent(move -> updateRecruits());
     }
 
     public void setup(Color playerColor, AIDifficulty aiDifficulty) {
         this.playerColor = playerColor;
         gameEngine.reset(playerColor, aiDifficulty);
 
-        availableRecruits = new ObservableSetWrapper<>(gameEngine.getGraveyard(playerColor));
+        availableRecruits = new ObservableSetWrapper<>(new HashSet<>(gameEngine.getGraveyard(playerColor)));
         Map<Position, Triple<Highlight, Unit, Color>> tempListenerMap = new HashMap<>();
         Map<Position, Unit> boardMap = gameEngine.getBoard();
 
@@ -62,6 +66,10 @@ public class GameEngineCallbacks implements GuiBoard.BoardCallback, RecruitMenu.
         gameEngine.setWinningEvent(winningEvent);
     }
 
+    public void setAIProgressEvent(AIProgressEvent aiProgressEvent) {
+        gameEngine.setAIProgressEvent(aiProgressEvent);
+    }
+
     private void setHighlights() {
         if (selectedTile != null) {
             listenerBoard.put(selectedTile, new Triple<>(Highlight.SELD, gameEngine.get(selectedTile), gameEngine.tileColor(selectedTile)));
@@ -104,12 +112,21 @@ public class GameEngineCallbacks implements GuiBoard.BoardCallback, RecruitMenu.
         }
 
         if (successful) {
-            availableRecruits.addAll(gameEngine.getGraveyard(playerColor));
+            updateRecruits();
         }
 
         return successful;
     }
 
+    // make the recruits on offer the units in the player's graveyard
+    private void updateRecruits() {
+        if (availableRecruits != null) {
+            Set<Unit> graveyard = gameEngine.getGraveyard(playerColor);
+            availableRecruits.retainAll(graveyard);
+            availableRecruits.addAll(graveyard);
+        }
+    }
+
     @Override
     public void addBoardListener(MapChangeListener<Position, Triple<Highlight, Unit, Color>> listener) {
         listenerBoard.addListener(listener);
@@ -184,4 +201,23 @@ public class GameEngineCallbacks implements GuiBoard.BoardCallback, RecruitMenu.
     public interface WinningEvent {
         public void haveWinner(boolean playerWins);
     }
+
+    public interface AIMoveEvent {
+        /**
+         * Called on the JavaFX application thread once the AI's move has been made on the board
+         *
+         * @param move the move the AI made
+         */
+        public void aiMoved(Move move);
+    }
+
+    public interface AIProgressEvent {
+        /**
+         * Called on the JavaFX application thread while the AI searches, each time it finds its best move so far
+         *
+         * @param depth    the depth searched so far, in the depth units of the AI search
+         * @param bestMove the best move found so far
+         */
+        public void aiProgress(int depth, Move bestMove);
+    }
 }
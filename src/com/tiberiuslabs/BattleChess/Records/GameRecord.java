@@ -0,0 +1,373 @@
+package com.tiberiuslabs.BattleChess.Records;
+
+import com.tiberiuslabs.BattleChess.AI.PackedBoard;
+import com.tiberiuslabs.BattleChess.ChessEngine.GameBoard;
+import com.tiberiuslabs.BattleChess.ChessEngine.Init;
+import com.tiberiuslabs.BattleChess.ChessEngine.Move;
+import com.tiberiuslabs.BattleChess.Types.AIDifficulty;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.MoveType;
+import com.tiberiuslabs.BattleChess.Types.Position;
+import com.tiberiuslabs.BattleChess.Types.SearchStrategy;
+import com.tiberiuslabs.BattleChess.Types.UnitType;
+
+import java.util.Arrays;
+
+/**
+ * The record of one game: who played it, how it ended and the moves that were played, white's first. <p/>
+ * Each move is packed into 16 bits: the final cell (bits 0-6), the start cell (bits 7-13) and the move type (bits
+ * 14-15). A recruitment has no start cell, its bits 7-13 hold the ordinal of the type of the recruit instead. The type
+ * of the unit that moves and of the unit it captures are whatever is on those cells when the game is replayed, so they
+ * are not stored. <p/>
+ * In the text notation a move is written as in Perft.notation: "x,y>x,y" for a move, "x,yxx,y" for an attack and
+ * "Q@x,y" for a recruitment, with the coordinates of the cells and the letter of the recruit's type, N for a knight.
+ *
+ * @see com.tiberiuslabs.BattleChess.Records.GameRecordWriter
+ * @see com.tiberiuslabs.BattleChess.Records.GameRecordReader
+ */
+public final class GameRecord {
+    private static final MoveType[] MOVE_TYPES = MoveType.values();
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+    // the letter of each type of recruit in the text notation, by ordinal
+    private static final String TYPE_LETTERS = "PNRBQK";
+
+    private final Player white;
+    private final Player black;
+    private final Color winner;
+    private final short[] moves;
+
+    /**
+     * Create the record of a game
+     *
+     * @param white  the white player, must not be null
+     * @param black  the black player, must not be null
+     * @param winner the color of the winning player, or Color.NEUTRAL if the game was a draw or was not finished
+     * @param moves  the packed moves of the game, copied
+     */
+    public GameRecord(Player white, Player black, Color winner, short[] moves) {
+        if (winner != Color.WHITE && winner != Color.BLACK && winner != Color.NEUTRAL) {
+            throw new IllegalArgumentException("no winner " + winner);
+        }
+        this.white = white;
+        this.black = black;
+        this.winner = winner;
+        this.moves = moves.clone();
+    }
+
+    /**
+     * Create the record of the game played on a board, from the board's move log
+     *
+     * @param board  the board the game was played on, the moves of its log up to its current ply are recorded
+     * @param white  the white player
+     * @param black  the black player
+     * @param winner the color of the winning player, or Color.NEUTRAL if the game was a draw or was not finished
+     * @return the record of the game
+     */
+    public static GameRecord of(GameBoard board, Player white, Player black, Color winner) {
+        short[] moves = new short[board.getPly()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = pack(PackedBoard.encode(board.getLoggedMove(ply)));
+        }
+        return new GameRecord(white, black, winner, moves);
+    }
+
+    public Player getWhite() {
+        return white;
+    }
+
+    public Player getBlack() {
+        return black;
+    }
+
+    /**
+     * Get the result of the game
+     *
+     * @return the color of the winning player, or Color.NEUTRAL if the game was a draw or was not finished
+     */
+    public Color getWinner() {
+        return winner;
+    }
+
+    /**
+     * Get the number of moves of the game
+     *
+     * @return the number of moves made by both players together
+     */
+    public int numMoves() {
+        return moves.length;
+    }
+
+    /**
+     * Get a move of the game
+     *
+     * @param ply the index of the move, in [0, numMoves())
+     * @return the packed move
+     */
+    public short getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Replay the game on a new GameBoard, the recruits are the dead units of their type with the lowest ids. The moves
+     * stay in the board's move log, so the board can seek back to any ply of the game
+     *
+     * @return the board at the end of the game
+     */
+    public GameBoard toGameBoard() {
+        GameBoard board = new GameBoard();
+        for (int ply = 0; ply < moves.length; ply++) {
+            board.makeMove(toMove(board, ply % 2 == 0 ? Color.WHITE : Color.BLACK, moves[ply]));
+        }
+        return board;
+    }
+
+    /**
+     * Replay the start of the game on a new PackedBoard
+     *
+     * @param plies the number of moves to replay, in [0, numMoves()]
+     * @return the board after the moves
+     */
+    public PackedBoard toPackedBoard(int plies) {
+        PackedBoard board = new PackedBoard();
+        for (int ply = 0; ply < plies; ply++) {
+            board.makeMove(unpack(board, moves[ply]));
+        }
+        return board;
+    }
+
+    /**
+     * Pack an encoded move of a PackedBoard
+     *
+     * @param move the encoded move
+     * @return the packed move
+     */
+    public static short pack(int move) {
+        MoveType moveType = PackedBoard.moveType(move);
+        int from = moveType == MoveType.REC ? PackedBoard.moveUnitType(move).ordinal() : PackedBoard.moveFrom(move);
+        return (short) (PackedBoard.moveTo(move) | from << 7 | moveType.ordinal() << 14);
+    }
+
+    /**
+     * Encode a packed move for a PackedBoard
+     *
+     * @param board the position the move is made in
+     * @param move  the packed move
+     * @return the encoded move
+     */
+    public static int unpack(PackedBoard board, short move) {
+        int to = move & 0x7F;
+        int from = move >>> 7 & 0x7F;
+        MoveType moveType = MOVE_TYPES[move >>> 14 & 3];
+        if (moveType == MoveType.REC) {
+            Color color = board.sideToMove() == 1 ? Color.BLACK : Color.WHITE;
+            return PackedBoard.encode(from, to, moveType, PackedBoard.pieceCode(UNIT_TYPES[from], color),
+                    PackedBoard.EMPTY);
+        }
+        return PackedBoard.encode(from, to, moveType, board.piece(from), board.piece(to));
+    }
+
+    /**
+     * Build the Move object of a packed move for a GameBoard
+     *
+     * @param board  the position the move is made in
+     * @param player the color of the player making the move
+     * @param move   the packed move
+     * @return the move, a recruitment recruits the player's dead unit of its type with the lowest id
+     */
+    public static Move toMove(GameBoard board, Color player, short move) {
+        Position finalPos = Init.cellPositions.get(move & 0x7F);
+        int from = move >>> 7 & 0x7F;
+        MoveType moveType = MOVE_TYPES[move >>> 14 & 3];
+        if (moveType == MoveType.REC) {
+            return new Move(board.getDeadUnit(player, UNIT_TYPES[from]), null, null, finalPos, MoveType.REC);
+        }
+        Position startPos = Init.cellPositions.get(from);
+        return new Move(board.get(startPos), startPos, board.get(finalPos), finalPos, moveType);
+    }
+
+    /**
+     * Write a packed move in the text notation
+     *
+     * @param move the packed move
+     * @return the text of the move
+     */
+    public static String notation(short move) {
+        Position to = Init.cellPositions.get(move & 0x7F);
+        int from = move >>> 7 & 0x7F;
+        MoveType moveType = MOVE_TYPES[move >>> 14 & 3];
+        if (moveType == MoveType.REC) {
+            return TYPE_LETTERS.charAt(from) + "@" + to.x() + "," + to.y();
+        }
+        Position start = Init.cellPositions.get(from);
+        String separator = moveType == MoveType.ATK ? "x" : ">";
+        return start.x() + "," + start.y() + separator + to.x() + "," + to.y();
+    }
+
+    /**
+     * Read a packed move from the text notation
+     *
+     * @param text the text of the move, as written by notation(short)
+     * @return the packed move
+     * @throws IllegalArgumentException if the text is not a move
+     */
+    public static short parseNotation(String text) {
+        int at = text.indexOf('@');
+        if (at >= 0) {
+            int type = TYPE_LETTERS.indexOf(text.charAt(0));
+            if (at != 1 || type < 0) {
+                throw new IllegalArgumentException("no move " + text);
+            }
+            return (short) (parseCell(text, 2, text.length()) | type << 7 | MoveType.REC.ordinal() << 14);
+        }
+        int separator = text.indexOf('>');
+        MoveType moveType = MoveType.MOV;
+        if (separator < 0) {
+            // the separator of an attack is the x that follows the digits of the start cell
+            separator = text.indexOf('x');
+            moveType = MoveType.ATK;
+        }
+        if (separator < 0) {
+            throw new IllegalArgumentException("no move " + text);
+        }
+        int from = parseCell(text, 0, separator);
+        int to = parseCell(text, separator + 1, text.length());
+        return (short) (to | from << 7 | moveType.ordinal() << 14);
+    }
+
+    // the cell number of the "x,y" coordinates in text[begin, end)
+    private static int parseCell(String text, int begin, int end) {
+        int comma = text.indexOf(',', begin);
+        try {
+            if (comma > begin && comma < end) {
+                int cell = Position.of(Integer.parseInt(text.substring(begin, comma)),
+                        Integer.parseInt(text.substring(comma + 1, end))).cell();
+                if (cell >= 0) {
+                    return cell;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("no move " + text);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameRecord)) {
+            return false;
+        }
+        GameRecord record = (GameRecord) other;
+        return white.equals(record.white) && black.equals(record.black) && winner == record.winner
+                && Arrays.equals(moves, record.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return (white.hashCode() * 31 + black.hashCode()) * 31 + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return white + " vs " + black + ", " + moves.length + " moves, winner " + winner;
+    }
+
+    /**
+     * One of the players of a recorded game, a person or the AI with the settings it searched with
+     */
+    public static final class Player {
+        /**
+         * the name of the player
+         */
+        public final String name;
+        /**
+         * the difficulty level the AI played at, or null for a person or an AI with settings of its own
+         */
+        public final AIDifficulty difficulty;
+        /**
+         * the search algorithm of the AI, or null for a person
+         */
+        public final SearchStrategy strategy;
+        /**
+         * the AI's time for each move in milliseconds, 0 for a person
+         */
+        public final long timeBudget;
+        /**
+         * the AI's deepest search in the depth units of the AI search, 0 for a person
+         */
+        public final int maxDepth;
+
+        private Player(String name, AIDifficulty difficulty, SearchStrategy strategy, long timeBudget, int maxDepth) {
+            this.name = name;
+            this.difficulty = difficulty;
+            this.strategy = strategy;
+            this.timeBudget = timeBudget;
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * Get a person playing the game
+         *
+         * @param name the name of the player
+         * @return the player
+         */
+        public static Player human(String name) {
+            return new Player(name, null, null, 0, 0);
+        }
+
+        /**
+         * Get the AI playing at one of the difficulty levels
+         *
+         * @param name       the name of the player
+         * @param difficulty the difficulty level
+         * @return the player
+         */
+        public static Player ai(String name, AIDifficulty difficulty) {
+            return new Player(name, difficulty, difficulty.strategy, difficulty.timeBudget, difficulty.maxDepth);
+        }
+
+        /**
+         * Get the AI playing with its own settings
+         *
+         * @param name       the name of the player
+         * @param strategy   the search algorithm of the AI
+         * @param timeBudget the AI's time for each move in milliseconds
+         * @param maxDepth   the AI's deepest search in the depth units of the AI search
+         * @return the player
+         */
+        public static Player ai(String name, SearchStrategy strategy, long timeBudget, int maxDepth) {
+            return new Player(name, null, strategy, timeBudget, maxDepth);
+        }
+
+        /**
+         * Get a player as stored in a record, with all of its fields
+         */
+        static Player of(String name, AIDifficulty difficulty, SearchStrategy strategy, long timeBudget,
+                         int maxDepth) {
+            return strategy == null ? human(name) : new Player(name, difficulty, strategy, timeBudget, maxDepth);
+        }
+
+        public boolean isHuman() {
+            return strategy == null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Player)) {
+                return false;
+            }
+            Player player = (Player) other;
+            return name.equals(player.name) && difficulty == player.difficulty && strategy == player.strategy
+                    && timeBudget == player.timeBudget && maxDepth == player.maxDepth;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() * 31 + (strategy == null ? 0 : strategy.ordinal() + 1);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.tiberiuslabs.BattleChess.Records;
+
+import com.tiberiuslabs.BattleChess.Types.AIDifficulty;
+import com.tiberiuslabs.BattleChess.Types.Color;
+import com.tiberiuslabs.BattleChess.Types.SearchStrategy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads game records from a stream one at a time, so that any number of games can be read in constant memory. The
+ * formats are described by GameRecordWriter.
+ *
+ * @see com.tiberiuslabs.BattleChess.Records.GameRecordWriter
+ */
+public final class GameRecordReader implements Closeable {
+    private static final Color[] COLORS = Color.values();
+    private static final AIDifficulty[] DIFFICULTIES = AIDifficulty.values();
+    private static final SearchStrategy[] STRATEGIES = SearchStrategy.values();
+
+    private final DataInputStream binary;
+    private final BufferedReader text;
+    // the version of a binary file
+    private final int version;
+    // the moves of the game being read, reused from game to game
+    private short[] moves = new short[256];
+    // the number of the last line read from a text file
+    private int lineNumber;
+    // the first line of the next game of a text file, read while looking for the end of the last one
+    private String nextLine;
+
+    /**
+     * Start reading game records from a stream
+     *
+     * @param in     the stream to read from, closed by close
+     * @param format the format the records were written in
+     * @throws IOException if the header cannot be read or the stream is not a binary game record file
+     */
+    public GameRecordReader(InputStream in, GameRecordWriter.Format format) throws IOException {
+        if (format == GameRecordWriter.Format.BINARY) {
+            binary = new DataInputStream(new BufferedInputStream(in));
+            text = null;
+            try {
+                if (binary.readInt() != GameRecordWriter.MAGIC) {
+                    throw new IOException("not a game record file");
+                }
+            } catch (EOFException e) {
+                throw new IOException("not a game record file");
+            }
+            version = binary.readInt();
+            if (version < 1 || version > GameRecordWriter.VERSION) {
+                throw new IOException("unsupported game record version " + version);
+            }
+        } else {
+            binary = null;
+            version = 0;
+            text = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Read the record of the next game
+     *
+     * @return the record, or null if there are no more games
+     * @throws IOException if the record cannot be read or is malformed
+     */
+    public GameRecord read() throws IOException {
+        return binary != null ? readBinary() : readText();
+    }
+
+    private GameRecord readBinary() throws IOException {
+        binary.mark(1);
+        if (binary.read() < 0) {
+            return null;
+        }
+        binary.reset();
+        try {
+            GameRecord.Player white = readPlayer();
+            GameRecord.Player black = readPlayer();
+            Color winner = COLORS[checkIndex(binary.readUnsignedByte(), COLORS.length)];
+            int numMoves = binary.readUnsignedShort();
+            for (int ply = 0; ply < numMoves; ply++) {
+                addMove(ply, binary.readShort());
+            }
+            return new GameRecord(white, black, winner, Arrays.copyOf(moves, numMoves));
+        } catch (EOFException e) {
+            throw new IOException("truncated game record");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("malformed game record: " + e.getMessage());
+        }
+    }
+
+    private GameRecord.Player readPlayer() throws IOException {
+        String name = binary.readUTF();
+        int difficulty = binary.readUnsignedByte();
+        int strategy = binary.readUnsignedByte();
+        if (strategy == 0) {
+            return GameRecord.Player.human(name);
+        }
+        // version 1 stored the time budget as an int
+        long timeBudget = version == 1 ? binary.readInt() : binary.readLong();
+        int maxDepth = binary.readShort();
+        return GameRecord.Player.of(name,
+                difficulty == 0 ? null : DIFFICULTIES[checkIndex(difficulty - 1, DIFFICULTIES.length)],
+                STRATEGIES[checkIndex(strategy - 1, STRATEGIES.length)], timeBudget, maxDepth);
+    }
+
+    private static int checkIndex(int index, int length) {
+        if (index >= length) {
+            throw new IllegalArgumentException("no value " + index);
+        }
+        return index;
+    }
+
+    private GameRecord readText() throws IOException {
+        String line = nextLine != null ? nextLine : readLine();
+        nextLine = null;
+        while (line != null && line.trim().isEmpty()) {
+            line = readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+
+        Map<String, String> tags = new HashMap<>();
+        while (line != null && line.startsWith("[")) {
+            parseTag(line, tags);
+            line = readLine();
+        }
+        int numMoves = 0;
+        while (line != null && !line.trim().isEmpty() && !line.startsWith("[")) {
+            for (String move : line.trim().split("\\s+")) {
+                try {
+                    addMove(numMoves++, GameRecord.parseNotation(move));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+            line = readLine();
+        }
+        nextLine = line;
+
+        try {
+            return new GameRecord(textPlayer(tags, "White"), textPlayer(tags, "Black"),
+                    Color.valueOf(tag(tags, "Result")), Arrays.copyOf(moves, numMoves));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private String readLine() throws IOException {
+        lineNumber += 1;
+        return text.readLine();
+    }
+
+    // add the [name "value"] tag of a line to the tags
+    private void parseTag(String line, Map<String, String> tags) throws IOException {
+        int space = line.indexOf(' ');
+        String rest = space < 0 ? "" : line.substring(space + 1).trim();
+        if (space < 2 || !rest.startsWith("\"") || !rest.endsWith("\"]") || rest.length() < 3) {
+            throw new IOException("line " + lineNumber + ": malformed tag " + line);
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = 1; i < rest.length() - 2; i++) {
+            char c = rest.charAt(i);
+            if (c == '\\' && i + 1 < rest.length() - 2) {
+                c = rest.charAt(++i);
+            }
+            value.append(c);
+        }
+        tags.put(line.substring(1, space), value.toString());
+    }
+
+    private GameRecord.Player textPlayer(Map<String, String> tags, String color) {
+        String name = tag(tags, color);
+        String engine = tags.get(color + "Engine");
+        if (engine == null) {
+            return GameRecord.Player.human(name);
+        }
+        String[] settings = engine.split(" ");
+        if (settings.length != 3) {
+            throw new IllegalArgumentException("malformed tag " + color + "Engine");
+        }
+        String level = tags.get(color + "Level");
+        return GameRecord.Player.of(name, level == null ? null : AIDifficulty.valueOf(level),
+                SearchStrategy.valueOf(settings[0]), Long.parseLong(settings[1]), Integer.parseInt(settings[2]));
+    }
+
+    private static String tag(Map<String, String> tags, String name) {
+        String value = tags.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing tag " + name);
+        }
+        return value;
+    }
+
+    private void addMove(int ply, short move) {
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, ply * 2);
+        }
+        moves[ply] = move;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (binary != null) {
+            binary.close();
+        } else {
+            text.close();
+        }
+    }
+}
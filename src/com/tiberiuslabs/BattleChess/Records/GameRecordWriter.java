@@ -0,0 +1,171 @@
+package com.tiberiuslabs.BattleChess.Records;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes game records to a stream one at a time, so that any number of games can be written in constant memory. <p/>
+ * A binary file starts with an 8 byte header, the magic number and the version, followed by the games. Each game is
+ * the white and the black player, the result as the ordinal of the winner's Color, the number of moves as an unsigned
+ * short and the packed moves as shorts. A player is its name in modified UTF-8, the ordinal + 1 of its difficulty and
+ * of its search strategy as bytes, 0 for none, and for the AI its time budget as a long and its maximum depth as a
+ * short. All values are big-endian, as DataOutputStream writes them. Files of version 1 stored the time budget as an
+ * int, they can still be read. <p/>
+ * A text file is made of the games separated by blank lines. Each game is its tags, one on each line, followed by its
+ * moves in the text notation of GameRecord, separated by spaces:
+ * <pre>
+ *     [White "name"]
+ *     [WhiteLevel "HARD"]
+ *     [WhiteEngine "ALPHA_BETA 4000 24"]
+ *     [Black "name"]
+ *     [Result "WHITE"]
+ *     0,-3>0,-2 0,3>0,2 ...
+ * </pre>
+ * The Level tag is left out for an AI that did not play at one of the difficulty levels, and both the Level and the
+ * Engine tag are left out for a person.
+ *
+ * @see com.tiberiuslabs.BattleChess.Records.GameRecordReader
+ */
+public final class GameRecordWriter implements Closeable, Flushable {
+    static final int MAGIC = 0x42434752;  // "BCGR"
+    static final int VERSION = 2;
+    // the longest line of moves in a text file
+    private static final int LINE_LENGTH = 100;
+
+    private final DataOutputStream binary;
+    private final Writer text;
+
+    /**
+     * Start writing game records to a stream
+     *
+     * @param out    the stream to write to, closed by close
+     * @param format the format to write the records in
+     * @throws IOException if the header cannot be written
+     */
+    public GameRecordWriter(OutputStream out, Format format) throws IOException {
+        if (format == Format.BINARY) {
+            binary = new DataOutputStream(new BufferedOutputStream(out));
+            text = null;
+            binary.writeInt(MAGIC);
+            binary.writeInt(VERSION);
+        } else {
+            binary = null;
+            text = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Write the record of a game
+     *
+     * @param record the record to write
+     * @throws IOException if the record cannot be written
+     */
+    public void write(GameRecord record) throws IOException {
+        if (record.numMoves() > 0xFFFF) {
+            throw new IllegalArgumentException("too many moves to record: " + record.numMoves());
+        }
+        if (binary != null) {
+            writeBinary(record);
+        } else {
+            writeText(record);
+        }
+    }
+
+    private void writeBinary(GameRecord record) throws IOException {
+        writePlayer(record.getWhite());
+        writePlayer(record.getBlack());
+        binary.writeByte(record.getWinner().ordinal());
+        binary.writeShort(record.numMoves());
+        for (int ply = 0; ply < record.numMoves(); ply++) {
+            binary.writeShort(record.getMove(ply));
+        }
+    }
+
+    private void writePlayer(GameRecord.Player player) throws IOException {
+        binary.writeUTF(player.name);
+        binary.writeByte(player.difficulty == null ? 0 : player.difficulty.ordinal() + 1);
+        binary.writeByte(player.strategy == null ? 0 : player.strategy.ordinal() + 1);
+        if (!player.isHuman()) {
+            binary.writeLong(player.timeBudget);
+            binary.writeShort(player.maxDepth);
+        }
+    }
+
+    private void writeText(GameRecord record) throws IOException {
+        writeTags("White", record.getWhite());
+        writeTags("Black", record.getBlack());
+        writeTag("Result", record.getWinner().name());
+        int lineLength = 0;
+        for (int ply = 0; ply < record.numMoves(); ply++) {
+            String move = GameRecord.notation(record.getMove(ply));
+            if (lineLength > 0 && lineLength + 1 + move.length() > LINE_LENGTH) {
+                text.write('\n');
+                lineLength = 0;
+            } else if (lineLength > 0) {
+                text.write(' ');
+                lineLength += 1;
+            }
+            text.write(move);
+            lineLength += move.length();
+        }
+        text.write(lineLength > 0 ? "\n\n" : "\n");
+    }
+
+    private void writeTags(String color, GameRecord.Player player) throws IOException {
+        writeTag(color, player.name);
+        if (player.difficulty != null) {
+            writeTag(color + "Level", player.difficulty.name());
+        }
+        if (!player.isHuman()) {
+            writeTag(color + "Engine", player.strategy.name() + " " + player.timeBudget + " " + player.maxDepth);
+        }
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        text.write('[');
+        text.write(name);
+        text.write(" \"");
+        text.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        text.write("\"]\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (binary != null) {
+            binary.flush();
+        } else {
+            text.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (binary != null) {
+            binary.close();
+        } else {
+            text.close();
+        }
+    }
+
+    /**
+     * The formats that game records can be written in
+     */
+    public enum Format {
+        /**
+         * two bytes a move, for storing many games
+         */
+        BINARY,
+        /**
+         * readable tags and moves, for reading and editing by hand
+         */
+        TEXT
+    }
+}
@@ -1,10 +1,33 @@
 package com.tiberiuslabs.BattleChess.Types;
 
 /**
- * Enumerated difficulty levels for the AI
+ * Enumerated difficulty levels for the AI, each level limits how long and how deep the AI may search for its move,
+ * and chooses the search algorithm it uses
  *
  * @author Amandeep Gill
  */
 public enum AIDifficulty {
-    EXPERT, HARD, MEDIUM, EASY
+    EXPERT(8000, 64, SearchStrategy.ALPHA_BETA),
+    HARD(4000, 24, SearchStrategy.ALPHA_BETA),
+    MEDIUM(2000, 16, SearchStrategy.ALPHA_BETA),
+    EASY(500, 8, SearchStrategy.MONTE_CARLO);
+
+    /**
+     * the wall-clock time in milliseconds that the AI may spend searching for each move
+     */
+    public final long timeBudget;
+    /**
+     * the deepest search the AI will attempt, in the depth units used by the AI search (four units per move)
+     */
+    public final int maxDepth;
+    /**
+     * the search algorithm the AI chooses its moves with
+     */
+    public final SearchStrategy strategy;
+
+    AIDifficulty(long timeBudget, int maxDepth, SearchStrategy strategy) {
+        this.timeBudget = timeBudget;
+        this.maxDepth = maxDepth;
+        this.strategy = strategy;
+    }
 }
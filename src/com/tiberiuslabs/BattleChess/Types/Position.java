@@ -1,71 +1,96 @@
 package com.tiberiuslabs.BattleChess.Types;
 
-import com.tiberiuslabs.Collections.Pair;
-
 /**
- * Specialized Pair wrapper specifically for integer cartesian coordinate
+ * Immutable integer cartesian coordinate of a board tile. <p/>
+ * There is a single instance for each of the 91 tiles of the board, shared by every part of the game and reached
+ * through Position.of, so positions can be compared by identity and hashed without boxing. Each tile's position also
+ * knows its cell number. A position off of the board is a new instance each time and has no cell number.
  *
  * @author Amandeep Gill
  */
-public class Position {
-    private final Pair<Integer, Integer> xy;
+public final class Position {
+    private static final int RADIUS = 5;
+    private static final int WIDTH = 2 * RADIUS + 1;
 
-    /**
-     * Initializes the Position to (0,0)
-     */
-    public Position() {
-        xy = new Pair<>(0, 0);
+    // the shared instances of the tiles, by (x + 5) * 11 + (y + 5), null for the corners of the grid off of the board
+    private static final Position[] tiles = new Position[WIDTH * WIDTH];
+
+    static {
+        // cells are numbered column by column, the same order as Init.cellPositions
+        int cell = 0;
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int y = -RADIUS; y <= RADIUS; y++) {
+                if (onBoard(x, y)) {
+                    tiles[(x + RADIUS) * WIDTH + y + RADIUS] = new Position(x, y, cell++);
+                }
+            }
+        }
+    }
+
+    private final int x;
+    private final int y;
+    private final int cell;
+
+    private Position(int x, int y, int cell) {
+        this.x = x;
+        this.y = y;
+        this.cell = cell;
     }
 
     /**
-     * Initializes the Position to (x,y)
+     * Get the position of (x,y)
      *
      * @param x the x coordinate
      * @param y the y coordinate
+     * @return the shared instance of the tile at (x,y), or a new Position if (x,y) is not on the board
      */
-    public Position(int x, int y) {
-        xy = new Pair<>(x, y);
+    public static Position of(int x, int y) {
+        return onBoard(x, y) ? tiles[(x + RADIUS) * WIDTH + y + RADIUS] : new Position(x, y, -1);
+    }
+
+    private static boolean onBoard(int x, int y) {
+        return Math.abs(x) <= RADIUS && Math.abs(y) <= RADIUS && Math.abs(x + y) <= RADIUS;
     }
 
     /**
-     * Initializes the Position with a copy of the (x,y) of the other Position
+     * Get the x coordinate of the Position
      *
-     * @param other the position to copy the data from
+     * @return the x coordinate
      */
-    public Position(Position other) {
-        xy = new Pair<>(other.x(), other.y());
+    public int x() {
+        return x;
     }
 
     /**
-     * Get the x coordinate of the Position
+     * Get the y coordinate of the Position
      *
-     * @return a reference to the Integer of x
+     * @return the y coordinate
      */
-    public Integer x() {
-        return xy.fst;
+    public int y() {
+        return y;
     }
 
     /**
-     * Get the y coordinate of the Position
+     * Get the cell number of the tile at this Position
      *
-     * @return a reference to the Integer of y
+     * @return the cell number in [0, 91), or -1 if the position is not on the board
      */
-    public Integer y() {
-        return xy.snd;
+    public int cell() {
+        return cell;
     }
 
     /**
-     * Construct a new Position through addition of this and other, performs check for null safety
+     * Get the Position of the sum of this and other, performs check for null safety
      *
      * @param other the Position to add to this Position
-     * @return a new Position with (x,y) == (this.x + other.x, this.y + other.y), returns a copy of this if other == null
+     * @return the Position (this.x + other.x, this.y + other.y), or this if other == null
      */
     public Position add(Position other) {
-        return other == null ? new Position(this) : new Position(this.x() + other.x(), this.y() + other.y());
+        return other == null ? this : of(x + other.x, y + other.y);
     }
 
     public Position add(int x, int y) {
-        return new Position(xy.fst + x, xy.snd + y);
+        return of(this.x + x, this.y + y);
     }
 
     @Override
@@ -73,15 +98,24 @@ public class Position {
         if (this == other) {
             return true;
         }
-        if (other == null || !(getClass().isInstance(other))) {
+        if (!(other instanceof Position)) {
             return false;
         }
-        Position otherPos = getClass().cast(other);
-        return this.xy.equals(otherPos.xy);
+        Position otherPos = (Position) other;
+        if (cell >= 0 && otherPos.cell >= 0) {
+            // each tile has one instance, so two different tiles are never equal
+            return false;
+        }
+        return x == otherPos.x && y == otherPos.y;
     }
 
     @Override
     public int hashCode() {
-        return xy.hashCode();
+        return (x + RADIUS) * WIDTH + y + RADIUS;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + "," + y + ")";
     }
 }
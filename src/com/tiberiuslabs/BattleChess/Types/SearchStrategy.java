@@ -0,0 +1,19 @@
+package com.tiberiuslabs.BattleChess.Types;
+
+/**
+ * Enumerated search algorithms that the AI can choose its move with
+ *
+ * @author Amandeep Gill
+ */
+public enum SearchStrategy {
+    /**
+     * iterative deepening alpha/beta search, every move is searched to the same depth and the board is scored with
+     * the AI's score functions at the leaves
+     */
+    ALPHA_BETA,
+    /**
+     * Monte-Carlo tree search, the tree grows towards the moves that have scored best so far and each new leaf is
+     * scored by a short random playout
+     */
+    MONTE_CARLO
+}
@@ -1,19 +1,43 @@
 package com.tiberiuslabs.BattleChess.Types;
 
 /**
- * Container for the Unit class
+ * Container for the Unit class. <p/>
+ * Units are immutable and there is a single instance for each type, color and id, reached through Unit.of. Each unit
+ * also has a compact code, so that boards can hold their units in primitive arrays and turn the codes back into the
+ * shared instances with Unit.fromCode when the GUI needs them. The low four bits of the code are the piece code used
+ * by the AI's boards: the type's ordinal + 1, with BLACK_BIT set for black units. The bits above them hold the id.
  *
  * @author Amandeep Gill
  */
-public class Unit {
-    private final transient int hash;
-    private final String stringID;
-    private final String typeString;
-
+public final class Unit {
+    /**
+     * the bit set in the code of a black unit
+     */
+    public static final int BLACK_BIT = 8;
     /**
-     * the unit's current position
+     * the lowest and highest ids that a unit can have
      */
-    public Position position;
+    public static final int MIN_ID = -64;
+    public static final int MAX_ID = 63;
+
+    private static final UnitType[] TYPES = UnitType.values();
+    private static final String[] NAMES = {"Pawn", "Knight", "Rook", "Bishop", "Queen", "King"};
+    private static final String[] TYPE_LETTERS = {"p", "n", "r", "b", "q", "k"};
+
+    // the shared instance of every unit by code, a code of 0 is no unit
+    private static final Unit[] registry = new Unit[(MAX_ID - MIN_ID + 1) << 4];
+
+    static {
+        for (Color color : new Color[]{Color.WHITE, Color.BLACK}) {
+            for (UnitType unitType : TYPES) {
+                for (int id = MIN_ID; id <= MAX_ID; id++) {
+                    Unit unit = new Unit(unitType, color, id);
+                    registry[unit.code] = unit;
+                }
+            }
+        }
+    }
+
     /**
      * the unit's enumerated type
      */
@@ -26,78 +50,73 @@ public class Unit {
      * an ID to distinguish between similar units
      */
     public final int id;
-
     /**
-     * Initialize the Unit.
-     *
-     * @param unitType the type of unit that this is
-     * @param color    the color of the this unit's controlling player
-     * @param id       an ID to distinguish this from the other units of the same type and color
+     * the compact code of the unit, never 0
      */
-    public Unit(UnitType unitType, Color color, int id) {
+    public final short code;
+
+    private Unit(UnitType unitType, Color color, int id) {
         this.unitType = unitType;
         this.color = color;
         this.id = id;
+        this.code = code(unitType, color, id);
+    }
 
-        boolean isBlack = color == Color.BLACK;
-        switch (unitType) {
-            case PAWN:
-                stringID = "Pawn #" + id;
-                typeString = isBlack ? "bp" : "wp";
-                break;
-            case KNIGHT:
-                stringID = "Knight #" + id;
-                typeString = isBlack ? "bn" : "wn";
-                break;
-            case ROOK:
-                stringID = "Rook #" + id;
-                typeString = isBlack ? "br" : "wr";
-                break;
-            case BISHOP:
-                stringID = "Bishop #" + id;
-                typeString = isBlack ? "bb" : "wb";
-                break;
-            case QUEEN:
-                stringID = "Queen #" + id;
-                typeString = isBlack ? "bq" : "wq";
-                break;
-            case KING:
-                stringID = "King #" + id;
-                typeString = isBlack ? "bk" : "wk";
-                break;
-            default:
-                stringID = "Unknown";
-                typeString = " ";
+    /**
+     * Get the unit with the given type, color and id
+     *
+     * @param unitType the type of unit that this is
+     * @param color    the color of the this unit's controlling player, WHITE or BLACK
+     * @param id       an ID to distinguish this from the other units of the same type and color, in [MIN_ID, MAX_ID]
+     * @return the shared instance of the unit
+     */
+    public static Unit of(UnitType unitType, Color color, int id) {
+        if (color != Color.WHITE && color != Color.BLACK || id < MIN_ID || id > MAX_ID) {
+            throw new IllegalArgumentException("no unit " + unitType + " " + color + " #" + id);
         }
+        return registry[code(unitType, color, id)];
+    }
 
-        hash = (unitType == null ? 0 : unitType.hashCode()) * 43 + (color == null ? 0 : color.hashCode()) * 29 + id;
+    /**
+     * Get the unit with the given code
+     *
+     * @param code the code of the unit, or 0
+     * @return the shared instance of the unit, or null if the code is 0
+     */
+    public static Unit fromCode(int code) {
+        return registry[code];
+    }
+
+    /**
+     * Get the code of the unit with the given type, color and id
+     *
+     * @param unitType the type of the unit
+     * @param color    the color of the unit's controlling player
+     * @param id       the id of the unit, in [MIN_ID, MAX_ID]
+     * @return the code of the unit
+     */
+    public static short code(UnitType unitType, Color color, int id) {
+        int piece = (unitType.ordinal() + 1) | (color == Color.BLACK ? BLACK_BIT : 0);
+        return (short) ((id - MIN_ID) << 4 | piece);
     }
 
     public String getTypeString() {
-        return typeString;
+        return (color == Color.BLACK ? "b" : "w") + TYPE_LETTERS[unitType.ordinal()];
     }
 
     @Override
     public int hashCode() {
-        return hash;
+        return code;
     }
 
     @Override
     public boolean equals(Object other) {
-        if (this == other) {
-            return true;
-        }
-
-        if (other == null || !(getClass().isInstance(other))) {
-            return false;
-        }
-
-        Unit otherUnit = getClass().cast(other);
-        return otherUnit.unitType == this.unitType && otherUnit.color == this.color && otherUnit.id == this.id;
+        // each unit has one instance
+        return this == other;
     }
 
     @Override
     public String toString() {
-        return stringID;
+        return NAMES[unitType.ordinal()] + " #" + id;
     }
 }